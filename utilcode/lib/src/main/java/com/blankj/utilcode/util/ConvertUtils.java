@@ -38,6 +38,8 @@ public final class ConvertUtils {
     private static final char hexDigits[] =
             {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
 
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * Bytes to bits.
      *
@@ -302,11 +304,11 @@ public final class ConvertUtils {
      */
     public static ByteArrayOutputStream input2OutputStream(final InputStream is) {
         if (is == null) return null;
+        byte[] b = Utils.BytePool.obtain(BUFFER_SIZE);
         try {
             ByteArrayOutputStream os = new ByteArrayOutputStream();
-            byte[] b = new byte[MemoryConstants.KB];
             int len;
-            while ((len = is.read(b, 0, MemoryConstants.KB)) != -1) {
+            while ((len = is.read(b, 0, BUFFER_SIZE)) != -1) {
                 os.write(b, 0, len);
             }
             return os;
@@ -314,6 +316,7 @@ public final class ConvertUtils {
             e.printStackTrace();
             return null;
         } finally {
+            Utils.BytePool.recycle(b);
             try {
                 is.close();
             } catch (IOException e) {
@@ -88,6 +88,11 @@ public final class CrashUtils {
                         "\n************* Log Head ****************\n\n";
                 sb.append(head)
                         .append(ThrowableUtils.getFullStackTrace(e));
+                final String logs = LogUtils.getRingLogs();
+                if (logs.length() > 0) {
+                    sb.append("\n************* Last Logs ****************\n")
+                            .append(logs);
+                }
                 final String crashInfo = sb.toString();
                 final String fullPath = (dir == null ? defaultDir : dir) + time + ".txt";
                 if (createOrExistsFile(fullPath)) {
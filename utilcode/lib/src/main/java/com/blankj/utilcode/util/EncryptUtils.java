@@ -1,20 +1,38 @@
 package com.blankj.utilcode.util;
 
+import android.support.annotation.IntRange;
 import android.util.Base64;
+import android.util.Log;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.security.DigestInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -23,7 +41,9 @@ import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.DESKeySpec;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -37,6 +57,20 @@ import javax.crypto.spec.SecretKeySpec;
  */
 public final class EncryptUtils {
 
+    private static final int FILE_BUFFER_SIZE   = 256 * 1024;
+    private static final int FILE_READ_SIZE     = FILE_BUFFER_SIZE - 32;// the padding and tag of GCM are at most 32 bytes
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final int CTR_CHUNK_SIZE     = 1024 * 1024;
+    private static final int GCM_TAG_BITS       = 128;
+
+    private static final ThreadLocal<Map<String, Object>> ENGINES =
+            new ThreadLocal<Map<String, Object>>() {
+                @Override
+                protected Map<String, Object> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
     private EncryptUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
@@ -177,31 +211,7 @@ public final class EncryptUtils {
      * @return the bytes of file's MD5 encryption
      */
     public static byte[] encryptMD5File(final File file) {
-        if (file == null) return null;
-        FileInputStream fis = null;
-        DigestInputStream digestInputStream;
-        try {
-            fis = new FileInputStream(file);
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            digestInputStream = new DigestInputStream(fis, md);
-            byte[] buffer = new byte[256 * 1024];
-            while (true) {
-                if (!(digestInputStream.read(buffer) > 0)) break;
-            }
-            md = digestInputStream.getMessageDigest();
-            return md.digest();
-        } catch (NoSuchAlgorithmException | IOException e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (fis != null) {
-                    fis.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        return hashFileTemplate(file, "MD5");
     }
 
     /**
@@ -235,6 +245,48 @@ public final class EncryptUtils {
         return hashTemplate(data, "SHA-1");
     }
 
+    /**
+     * Return the hex string of file's SHA1 encryption.
+     *
+     * @param filePath The path of file.
+     * @return the hex string of file's SHA1 encryption
+     */
+    public static String encryptSHA1File2String(final String filePath) {
+        File file = isSpace(filePath) ? null : new File(filePath);
+        return encryptSHA1File2String(file);
+    }
+
+    /**
+     * Return the bytes of file's SHA1 encryption.
+     *
+     * @param filePath The path of file.
+     * @return the bytes of file's SHA1 encryption
+     */
+    public static byte[] encryptSHA1File(final String filePath) {
+        File file = isSpace(filePath) ? null : new File(filePath);
+        return encryptSHA1File(file);
+    }
+
+    /**
+     * Return the hex string of file's SHA1 encryption.
+     *
+     * @param file The file.
+     * @return the hex string of file's SHA1 encryption
+     */
+    public static String encryptSHA1File2String(final File file) {
+        return bytes2HexString(encryptSHA1File(file));
+    }
+
+    /**
+     * Return the bytes of file's SHA1 encryption.
+     *
+     * @param file The file.
+     * @return the bytes of file's SHA1 encryption
+     */
+    public static byte[] encryptSHA1File(final File file) {
+        return hashFileTemplate(file, "SHA-1");
+    }
+
     /**
      * Return the hex string of SHA224 encryption.
      *
@@ -297,6 +349,48 @@ public final class EncryptUtils {
         return hashTemplate(data, "SHA-256");
     }
 
+    /**
+     * Return the hex string of file's SHA256 encryption.
+     *
+     * @param filePath The path of file.
+     * @return the hex string of file's SHA256 encryption
+     */
+    public static String encryptSHA256File2String(final String filePath) {
+        File file = isSpace(filePath) ? null : new File(filePath);
+        return encryptSHA256File2String(file);
+    }
+
+    /**
+     * Return the bytes of file's SHA256 encryption.
+     *
+     * @param filePath The path of file.
+     * @return the bytes of file's SHA256 encryption
+     */
+    public static byte[] encryptSHA256File(final String filePath) {
+        File file = isSpace(filePath) ? null : new File(filePath);
+        return encryptSHA256File(file);
+    }
+
+    /**
+     * Return the hex string of file's SHA256 encryption.
+     *
+     * @param file The file.
+     * @return the hex string of file's SHA256 encryption
+     */
+    public static String encryptSHA256File2String(final File file) {
+        return bytes2HexString(encryptSHA256File(file));
+    }
+
+    /**
+     * Return the bytes of file's SHA256 encryption.
+     *
+     * @param file The file.
+     * @return the bytes of file's SHA256 encryption
+     */
+    public static byte[] encryptSHA256File(final File file) {
+        return hashFileTemplate(file, "SHA-256");
+    }
+
     /**
      * Return the hex string of SHA384 encryption.
      *
@@ -359,6 +453,222 @@ public final class EncryptUtils {
         return hashTemplate(data, "SHA-512");
     }
 
+    /**
+     * Return the hex string of file's tree hash.
+     *
+     * @param file      The file.
+     * @param algorithm The name of hash encryption, such as {@code MD5}, {@code SHA-1},
+     *                  {@code SHA-256}.
+     * @param chunkSize The size of chunk.
+     * @return the hex string of file's tree hash
+     * @see #encryptFileTreeHash(File, String, int)
+     */
+    public static String encryptFileTreeHash2String(final File file,
+                                                    final String algorithm,
+                                                    @IntRange(from = 1) final int chunkSize) {
+        return bytes2HexString(encryptFileTreeHash(file, algorithm, chunkSize));
+    }
+
+    /**
+     * Return the bytes of file's tree hash.
+     * <p>The file is split into chunks of {@code chunkSize}, which are hashed in parallel
+     * on the CPU pool of {@link ThreadUtils}, then the hashes of chunks are hashed in order.
+     * So it differs from the plain hash of file, and both sides must use the same chunk size.</p>
+     *
+     * @param file      The file.
+     * @param algorithm The name of hash encryption, such as {@code MD5}, {@code SHA-1},
+     *                  {@code SHA-256}.
+     * @param chunkSize The size of chunk.
+     * @return the bytes of file's tree hash
+     */
+    public static byte[] encryptFileTreeHash(final File file,
+                                             final String algorithm,
+                                             @IntRange(from = 1) final int chunkSize) {
+        if (file == null || chunkSize <= 0) return null;
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            final FileChannel channel = fis.getChannel();
+            final int count = (int) ((channel.size() + chunkSize - 1) / chunkSize);
+            final byte[][] hashes = new byte[count][];
+            final MessageDigest md = MessageDigest.getInstance(algorithm);
+            final boolean isSuccess = runChunks(count, ThreadUtils.getCpuPool(), new ChunkTask() {
+                @Override
+                public ChunkWorker newWorker() {
+                    return new ChunkWorker() {
+                        private final byte[]        mBuffer = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+                        private       MessageDigest mMd;
+
+                        @Override
+                        void process(final int index) throws Exception {
+                            if (mMd == null) mMd = MessageDigest.getInstance(algorithm);
+                            updateFileDigest(channel, mMd, (long) index * chunkSize, chunkSize, mBuffer);
+                            hashes[index] = mMd.digest();
+                        }
+
+                        @Override
+                        void release() {
+                            Utils.BytePool.recycle(mBuffer);
+                        }
+                    };
+                }
+            });
+            if (!isSuccess) return null;
+            for (byte[] hash : hashes) {
+                md.update(hash);
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Process the chunks in [0, count) by the caller and the threads of pool, the caller
+     * processes the chunks too, so it never waits for the busy pool. It returns after all
+     * the workers stop, even if it's interrupted.
+     *
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    private static boolean runChunks(final int count,
+                                     final ExecutorService pool,
+                                     final ChunkTask task) {
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean isFailed = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(count);
+        final Runnable runner = new Runnable() {
+            @Override
+            public void run() {
+                ChunkWorker worker = null;
+                try {
+                    int i;
+                    while ((i = next.getAndIncrement()) < count) {
+                        try {
+                            if (Thread.currentThread().isInterrupted()) isFailed.set(true);
+                            if (isFailed.get()) continue;
+                            if (worker == null) worker = task.newWorker();
+                            worker.process(i);
+                        } catch (Throwable e) {
+                            e.printStackTrace();
+                            isFailed.set(true);
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                } finally {
+                    if (worker != null) worker.release();
+                }
+            }
+        };
+        final int helpers = Math.min(count, Runtime.getRuntime().availableProcessors()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                pool.execute(runner);
+            } catch (RejectedExecutionException ignore) {
+                break;
+            }
+        }
+        runner.run();
+        boolean isInterrupted = false;
+        for (; ; ) {
+            try {
+                // the chunks share the channels which are closed after return
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+                isFailed.set(true);
+            }
+        }
+        if (isInterrupted) Thread.currentThread().interrupt();
+        return !isFailed.get();
+    }
+
+    /**
+     * The task of {@link #runChunks}, each thread which joins it has its own worker.
+     */
+    private interface ChunkTask {
+        ChunkWorker newWorker();
+    }
+
+    private abstract static class ChunkWorker {
+
+        abstract void process(int index) throws Exception;
+
+        /**
+         * Release the resources after the last chunk of its thread.
+         */
+        void release() {
+        }
+    }
+
+    /**
+     * Return the bytes of file's hash encryption.
+     *
+     * @param file      The file.
+     * @param algorithm The name of hash encryption.
+     * @return the bytes of file's hash encryption
+     */
+    private static byte[] hashFileTemplate(final File file, final String algorithm) {
+        if (file == null) return null;
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            MessageDigest md = getDigest(algorithm);
+            byte[] buffer = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+            try {
+                updateFileDigest(fis.getChannel(), md, 0, Long.MAX_VALUE, buffer);
+            } finally {
+                Utils.BytePool.recycle(buffer);
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Update the digest with the bytes of channel in [position, position + length),
+     * which are read by position, so a channel can be shared by threads.
+     */
+    private static void updateFileDigest(final FileChannel channel,
+                                         final MessageDigest md,
+                                         long position,
+                                         final long length,
+                                         final byte[] bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final long end = length > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + length;
+        while (position < end) {
+            buffer.clear();
+            if (end - position < buffer.capacity()) {
+                buffer.limit((int) (end - position));
+            }
+            final int len = channel.read(buffer, position);
+            if (len < 0) break;
+            position += len;
+            buffer.flip();
+            md.update(buffer);
+        }
+    }
+
     /**
      * Return the bytes of hash encryption.
      *
@@ -369,7 +679,7 @@ public final class EncryptUtils {
     private static byte[] hashTemplate(final byte[] data, final String algorithm) {
         if (data == null || data.length <= 0) return null;
         try {
-            MessageDigest md = MessageDigest.getInstance(algorithm);
+            MessageDigest md = getDigest(algorithm);
             md.update(data);
             return md.digest();
         } catch (NoSuchAlgorithmException e) {
@@ -600,7 +910,7 @@ public final class EncryptUtils {
         if (data == null || data.length == 0 || key == null || key.length == 0) return null;
         try {
             SecretKeySpec secretKey = new SecretKeySpec(key, algorithm);
-            Mac mac = Mac.getInstance(algorithm);
+            Mac mac = getMac(algorithm);
             mac.init(secretKey);
             return mac.doFinal(data);
         } catch (InvalidKeyException | NoSuchAlgorithmException e) {
@@ -715,6 +1025,86 @@ public final class EncryptUtils {
         return symmetricTemplate(data, key, "DES", transformation, iv, false);
     }
 
+    /**
+     * Encrypt the input stream by DES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encryptDES(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final String transformation,
+                                     final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "DES", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the input stream by DES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decryptDES(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final String transformation,
+                                     final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "DES", transformation, iv, false);
+    }
+
+    /**
+     * Encrypt the file by DES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encryptDESFile(final File srcFile,
+                                         final File destFile,
+                                         final byte[] key,
+                                         final String transformation,
+                                         final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "DES", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the file by DES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decryptDESFile(final File srcFile,
+                                         final File destFile,
+                                         final byte[] key,
+                                         final String transformation,
+                                         final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "DES", transformation, iv, false);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // 3DES encryption
     ///////////////////////////////////////////////////////////////////////////
@@ -821,6 +1211,86 @@ public final class EncryptUtils {
         return symmetricTemplate(data, key, "DESede", transformation, iv, false);
     }
 
+    /**
+     * Encrypt the input stream by 3DES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encrypt3DES(final InputStream is,
+                                      final OutputStream os,
+                                      final byte[] key,
+                                      final String transformation,
+                                      final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "DESede", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the input stream by 3DES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decrypt3DES(final InputStream is,
+                                      final OutputStream os,
+                                      final byte[] key,
+                                      final String transformation,
+                                      final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "DESede", transformation, iv, false);
+    }
+
+    /**
+     * Encrypt the file by 3DES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encrypt3DESFile(final File srcFile,
+                                          final File destFile,
+                                          final byte[] key,
+                                          final String transformation,
+                                          final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "DESede", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the file by 3DES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decrypt3DESFile(final File srcFile,
+                                          final File destFile,
+                                          final byte[] key,
+                                          final String transformation,
+                                          final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "DESede", transformation, iv, false);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // AES encryption
     ///////////////////////////////////////////////////////////////////////////
@@ -928,38 +1398,120 @@ public final class EncryptUtils {
     }
 
     /**
-     * Return the bytes of symmetric encryption or decryption.
+     * Encrypt the input stream by AES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     * <p>The IV of <i>AES/GCM/NoPadding</i> is used as the nonce with 128-bit tag, and the
+     * decrypted bytes may be kept by provider until the tag is verified at the end.</p>
      *
-     * @param data           The data.
+     * @param is             The input stream.
+     * @param os             The output stream.
      * @param key            The key.
-     * @param algorithm      The name of algorithm.
-     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
-     * @param isEncrypt      True to encrypt, false otherwise.
-     * @return the bytes of symmetric encryption or decryption
+     * @param transformation The name of the transformation, e.g., <i>AES/CTR/NoPadding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
      */
-    private static byte[] symmetricTemplate(final byte[] data,
-                                            final byte[] key,
-                                            final String algorithm,
-                                            final String transformation,
-                                            final byte[] iv,
-                                            final boolean isEncrypt) {
-        if (data == null || data.length == 0 || key == null || key.length == 0) return null;
-        try {
-            SecretKey secretKey;
-            if ("DES".equals(algorithm)) {
-                DESKeySpec desKey = new DESKeySpec(key);
-                SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(algorithm);
-                secretKey = keyFactory.generateSecret(desKey);
-            } else {
-                secretKey = new SecretKeySpec(key, algorithm);
-            }
-            Cipher cipher = Cipher.getInstance(transformation);
-            if (iv == null || iv.length == 0) {
-                cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey);
-            } else {
-                AlgorithmParameterSpec params = new IvParameterSpec(iv);
-                cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey, params);
-            }
+    public static boolean encryptAES(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final String transformation,
+                                     final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "AES", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the input stream by AES to the output stream.
+     * <p>The streams are processed by a buffer, and they won't be closed.</p>
+     * <p>The IV of <i>AES/GCM/NoPadding</i> is used as the nonce with 128-bit tag, and the
+     * decrypted bytes may be kept by provider until the tag is verified at the end.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>AES/CTR/NoPadding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decryptAES(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final String transformation,
+                                     final byte[] iv) {
+        return symmetricStreamTemplate(is, os, key, "AES", transformation, iv, false);
+    }
+
+    /**
+     * Encrypt the file by AES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     * <p>The IV of <i>AES/GCM/NoPadding</i> is used as the nonce with 128-bit tag, and the
+     * decrypted bytes may be kept by provider until the tag is verified at the end.</p>
+     * <p>The file of <i>AES/CTR/NoPadding</i> is processed in chunks in parallel, because
+     * each chunk starts at its own counter.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>AES/CTR/NoPadding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encryptAESFile(final File srcFile,
+                                         final File destFile,
+                                         final byte[] key,
+                                         final String transformation,
+                                         final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "AES", transformation, iv, true);
+    }
+
+    /**
+     * Decrypt the file by AES to the destination file.
+     * <p>The files are processed by {@link FileChannel} and direct buffers.</p>
+     * <p>The IV of <i>AES/GCM/NoPadding</i> is used as the nonce with 128-bit tag, and the
+     * decrypted bytes may be kept by provider until the tag is verified at the end.</p>
+     * <p>The file of <i>AES/CTR/NoPadding</i> is processed in chunks in parallel, because
+     * each chunk starts at its own counter.</p>
+     *
+     * @param srcFile        The source file.
+     * @param destFile       The destination file.
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>AES/CTR/NoPadding</i>.
+     * @param iv             The buffer with the IV. The contents of the
+     *                       buffer are copied to protect against subsequent modification.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decryptAESFile(final File srcFile,
+                                         final File destFile,
+                                         final byte[] key,
+                                         final String transformation,
+                                         final byte[] iv) {
+        return symmetricFileTemplate(srcFile, destFile, key, "AES", transformation, iv, false);
+    }
+
+    /**
+     * Return the bytes of symmetric encryption or decryption.
+     *
+     * @param data           The data.
+     * @param key            The key.
+     * @param algorithm      The name of algorithm.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @param isEncrypt      True to encrypt, false otherwise.
+     * @return the bytes of symmetric encryption or decryption
+     */
+    private static byte[] symmetricTemplate(final byte[] data,
+                                            final byte[] key,
+                                            final String algorithm,
+                                            final String transformation,
+                                            final byte[] iv,
+                                            final boolean isEncrypt) {
+        if (data == null || data.length == 0 || key == null || key.length == 0) return null;
+        try {
+            // the provider may refuse to encrypt by the same IV of GCM again with the same cipher
+            Cipher cipher = isGcmTransformation(transformation)
+                    ? Cipher.getInstance(transformation)
+                    : getCipher(transformation);
+            initSymmetricCipher(cipher, getSecretKey(key, algorithm), transformation, iv, isEncrypt);
             return cipher.doFinal(data);
         } catch (Throwable e) {
             e.printStackTrace();
@@ -967,6 +1519,264 @@ public final class EncryptUtils {
         }
     }
 
+    private static boolean symmetricStreamTemplate(final InputStream is,
+                                                   final OutputStream os,
+                                                   final byte[] key,
+                                                   final String algorithm,
+                                                   final String transformation,
+                                                   final byte[] iv,
+                                                   final boolean isEncrypt) {
+        if (is == null || os == null || key == null || key.length == 0) return false;
+        byte[] in = null;
+        byte[] out = null;
+        try {
+            Cipher cipher = getSymmetricCipher(key, algorithm, transformation, iv, isEncrypt);
+            in = Utils.BytePool.obtain(STREAM_BUFFER_SIZE);
+            out = Utils.BytePool.obtain(cipher.getOutputSize(STREAM_BUFFER_SIZE));
+            int len;
+            while ((len = is.read(in, 0, STREAM_BUFFER_SIZE)) != -1) {
+                // the provider may keep the bytes, such as the decryption of GCM
+                int size = cipher.getOutputSize(len);
+                if (size > out.length) {
+                    Utils.BytePool.recycle(out);
+                    out = Utils.BytePool.obtain(size);
+                }
+                os.write(out, 0, cipher.update(in, 0, len, out, 0));
+            }
+            int size = cipher.getOutputSize(0);
+            if (size > out.length) {
+                Utils.BytePool.recycle(out);
+                out = Utils.BytePool.obtain(size);
+            }
+            os.write(out, 0, cipher.doFinal(out, 0));
+            return true;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            Utils.BytePool.recycle(in);
+            Utils.BytePool.recycle(out);
+        }
+    }
+
+    private static boolean symmetricFileTemplate(final File srcFile,
+                                                 final File destFile,
+                                                 final byte[] key,
+                                                 final String algorithm,
+                                                 final String transformation,
+                                                 final byte[] iv,
+                                                 final boolean isEncrypt) {
+        if (srcFile == null || destFile == null || key == null || key.length == 0) return false;
+        if (srcFile.equals(destFile)) return false;
+        FileInputStream fis = null;
+        FileOutputStream fos = null;
+        boolean isSuccess = false;
+        byte[] inBytes = null;
+        byte[] outBytes = null;
+        try {
+            fis = new FileInputStream(srcFile);
+            fos = new FileOutputStream(destFile);
+            final FileChannel in = fis.getChannel();
+            final FileChannel out = fos.getChannel();
+            if (isCtrTransformation(algorithm, transformation, iv)) {
+                isSuccess = ctrFileTemplate(in, out, key, transformation, iv);
+                return isSuccess;
+            }
+            Cipher cipher = getSymmetricCipher(key, algorithm, transformation, iv, isEncrypt);
+            inBytes = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+            outBytes = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final int len = (int) Math.min(FILE_READ_SIZE, size - position);
+                position += cipherFileRange(cipher, in, out, position, len, -1,
+                        position >= size - len, inBytes, outBytes);
+            }
+            // the empty file is still padded
+            if (size == 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(cipher.doFinal());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            isSuccess = true;
+            return true;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            Utils.BytePool.recycle(inBytes);
+            Utils.BytePool.recycle(outBytes);
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                if (fos != null) {
+                    fos.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                isSuccess = false;
+            }
+            // the half-written file isn't a result
+            if (!isSuccess && destFile.exists() && !destFile.delete()) {
+                Log.e("EncryptUtils", "delete " + destFile + " failed!");
+            }
+        }
+    }
+
+    /**
+     * Process the file of AES/CTR in chunks on the IO pool of {@link ThreadUtils}, the counter
+     * of each chunk is the IV plus the count of blocks before it.
+     */
+    private static boolean ctrFileTemplate(final FileChannel in,
+                                           final FileChannel out,
+                                           final byte[] key,
+                                           final String transformation,
+                                           final byte[] iv) throws IOException {
+        final long size = in.size();
+        final int count = (int) ((size + CTR_CHUNK_SIZE - 1) / CTR_CHUNK_SIZE);
+        return runChunks(count, ThreadUtils.getIoPool(), new ChunkTask() {
+            @Override
+            public ChunkWorker newWorker() {
+                return new ChunkWorker() {
+                    private final byte[] mInBytes  = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+                    private final byte[] mOutBytes = Utils.BytePool.obtain(FILE_BUFFER_SIZE);
+
+                    @Override
+                    void process(final int index) throws Exception {
+                        final long start = (long) index * CTR_CHUNK_SIZE;
+                        final long end = Math.min(size, start + CTR_CHUNK_SIZE);
+                        Cipher cipher = getSymmetricCipher(key, "AES", transformation,
+                                addCounter(iv, start / 16), true);
+                        long position = start;
+                        while (position < end) {
+                            final int len = (int) Math.min(FILE_READ_SIZE, end - position);
+                            position += cipherFileRange(cipher, in, out, position, len, position,
+                                    position >= end - len, mInBytes, mOutBytes);
+                        }
+                    }
+
+                    @Override
+                    void release() {
+                        Utils.BytePool.recycle(mInBytes);
+                        Utils.BytePool.recycle(mOutBytes);
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Process the bytes of input channel in [position, position + length) by the cipher,
+     * and write them to output channel at {@code outPosition}, or its current position if
+     * it's -1.
+     *
+     * @return the length of bytes read
+     */
+    private static int cipherFileRange(final Cipher cipher,
+                                       final FileChannel in,
+                                       final FileChannel out,
+                                       final long position,
+                                       final int length,
+                                       long outPosition,
+                                       final boolean isFinal,
+                                       final byte[] inBytes,
+                                       final byte[] outBytes) throws Exception {
+        final ByteBuffer inBuffer = ByteBuffer.wrap(inBytes, 0, length);
+        while (inBuffer.hasRemaining()) {
+            if (in.read(inBuffer, position + inBuffer.position()) < 0) {
+                throw new IOException("the file is truncated");
+            }
+        }
+        inBuffer.flip();
+        final int size = cipher.getOutputSize(length);
+        // the provider may keep the bytes, such as the decryption of GCM
+        final ByteBuffer outBuffer = ByteBuffer.wrap(size > outBytes.length ? new byte[size] : outBytes);
+        if (isFinal) {
+            cipher.doFinal(inBuffer, outBuffer);
+        } else {
+            cipher.update(inBuffer, outBuffer);
+        }
+        outBuffer.flip();
+        while (outBuffer.hasRemaining()) {
+            if (outPosition == -1) {
+                out.write(outBuffer);
+            } else {
+                outPosition += out.write(outBuffer, outPosition);
+            }
+        }
+        return length;
+    }
+
+    private static boolean isCtrTransformation(final String algorithm,
+                                               final String transformation,
+                                               final byte[] iv) {
+        if (!"AES".equals(algorithm) || iv == null || iv.length != 16) return false;
+        String[] parts = transformation.toUpperCase(Locale.US).split("/");
+        return parts.length == 3 && "CTR".equals(parts[1]) && "NOPADDING".equals(parts[2]);
+    }
+
+    /**
+     * Return the counter which is the IV plus the count of blocks as a big-endian integer.
+     */
+    private static byte[] addCounter(final byte[] iv, final long blocks) {
+        byte[] counter = iv.clone();
+        long carry = blocks;
+        for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+            long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return counter;
+    }
+
+    private static Cipher getSymmetricCipher(final byte[] key,
+                                             final String algorithm,
+                                             final String transformation,
+                                             final byte[] iv,
+                                             final boolean isEncrypt) throws Exception {
+        // the streams hold it across reading, so it isn't the cached one
+        Cipher cipher = Cipher.getInstance(transformation);
+        initSymmetricCipher(cipher, getSecretKey(key, algorithm), transformation, iv, isEncrypt);
+        return cipher;
+    }
+
+    private static SecretKey getSecretKey(final byte[] key, final String algorithm) throws Exception {
+        if ("DES".equals(algorithm)) {
+            DESKeySpec desKey = new DESKeySpec(key);
+            SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(algorithm);
+            return keyFactory.generateSecret(desKey);
+        }
+        return new SecretKeySpec(key, algorithm);
+    }
+
+    private static boolean isGcmTransformation(final String transformation) {
+        return transformation.toUpperCase(Locale.US).contains("/GCM/");
+    }
+
+    private static void initSymmetricCipher(final Cipher cipher,
+                                            final SecretKey secretKey,
+                                            final String transformation,
+                                            final byte[] iv,
+                                            final boolean isEncrypt) throws Exception {
+        if (iv == null || iv.length == 0) {
+            cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey);
+        } else {
+            AlgorithmParameterSpec params;
+            if (isGcmTransformation(transformation)) {
+                params = new GCMParameterSpec(GCM_TAG_BITS, iv);
+            } else {
+                params = new IvParameterSpec(iv);
+            }
+            cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey, params);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // RSA encryption
     ///////////////////////////////////////////////////////////////////////////
@@ -1005,6 +1815,8 @@ public final class EncryptUtils {
 
     /**
      * Return the bytes of RSA encryption.
+     * <p>The data longer than a block needs the padding in transformation, such as
+     * <i>RSA/ECB/PKCS1Padding</i>, since the padding of bare <i>RSA</i> depends on the provider.</p>
      *
      * @param data           The data.
      * @param key            The key.
@@ -1067,6 +1879,46 @@ public final class EncryptUtils {
         return rsaTemplate(data, key, isPublicKey, transformation, false);
     }
 
+    /**
+     * Encrypt the input stream by RSA to the output stream.
+     * <p>The input is encrypted block by block, the streams won't be closed. The padding in
+     * transformation is required, such as <i>RSA/ECB/PKCS1Padding</i>, since the padding of
+     * bare <i>RSA</i> depends on the provider.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param isPublicKey    True to use public key, false to use private key.
+     * @param transformation The name of the transformation, e.g., <i>RSA/ECB/PKCS1Padding</i>.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean encryptRSA(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final boolean isPublicKey,
+                                     final String transformation) {
+        return rsaStreamTemplate(is, os, key, isPublicKey, transformation, true);
+    }
+
+    /**
+     * Decrypt the input stream by RSA to the output stream.
+     * <p>The input is decrypted block by block, the streams won't be closed.</p>
+     *
+     * @param is             The input stream.
+     * @param os             The output stream.
+     * @param key            The key.
+     * @param isPublicKey    True to use public key, false to use private key.
+     * @param transformation The name of the transformation, e.g., <i>RSA/ECB/PKCS1Padding</i>.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean decryptRSA(final InputStream is,
+                                     final OutputStream os,
+                                     final byte[] key,
+                                     final boolean isPublicKey,
+                                     final String transformation) {
+        return rsaStreamTemplate(is, os, key, isPublicKey, transformation, false);
+    }
+
     /**
      * Return the bytes of RSA encryption or decryption.
      *
@@ -1086,39 +1938,8 @@ public final class EncryptUtils {
             return null;
         }
         try {
-            Key rsaKey;
-            if (isPublicKey) {
-                X509EncodedKeySpec keySpec = new X509EncodedKeySpec(key);
-                rsaKey = KeyFactory.getInstance("RSA").generatePublic(keySpec);
-            } else {
-                PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(key);
-                rsaKey = KeyFactory.getInstance("RSA").generatePrivate(keySpec);
-            }
-            if (rsaKey == null) return null;
-            Cipher cipher = Cipher.getInstance(transformation);
-            cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, rsaKey);
-            int len = data.length;
-            int maxLen = isEncrypt ? 117 : 128;
-            int count = len / maxLen;
-            if (count > 0) {
-                byte[] ret = new byte[0];
-                byte[] buff = new byte[maxLen];
-                int index = 0;
-                for (int i = 0; i < count; i++) {
-                    System.arraycopy(data, index, buff, 0, maxLen);
-                    ret = joins(ret, cipher.doFinal(buff));
-                    index += maxLen;
-                }
-                if (index != len) {
-                    int restLen = len - index;
-                    buff = new byte[restLen];
-                    System.arraycopy(data, index, buff, 0, restLen);
-                    ret = joins(ret, cipher.doFinal(buff));
-                }
-                return ret;
-            } else {
-                return cipher.doFinal(data);
-            }
+            return rsaDoFinal(getCipher(transformation), getRSAKey(key, isPublicKey), data, isEncrypt,
+                    transformation);
         } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
         } catch (NoSuchPaddingException e) {
@@ -1131,19 +1952,418 @@ public final class EncryptUtils {
             e.printStackTrace();
         } catch (InvalidKeySpecException e) {
             e.printStackTrace();
+        } catch (ShortBufferException e) {
+            e.printStackTrace();
         }
         return null;
     }
 
+    private static boolean rsaStreamTemplate(final InputStream is,
+                                             final OutputStream os,
+                                             final byte[] key,
+                                             final boolean isPublicKey,
+                                             final String transformation,
+                                             final boolean isEncrypt) {
+        if (is == null || os == null || key == null || key.length == 0) return false;
+        byte[] in = null;
+        byte[] out = null;
+        try {
+            Key rsaKey = getRSAKey(key, isPublicKey);
+            Cipher cipher = Cipher.getInstance(transformation);
+            cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, rsaKey);
+            final int modulusLen = getRSAModulusLength(rsaKey);
+            final int paddingLen = getRSAPaddingLength(transformation);
+            if (modulusLen <= 0 || (isEncrypt && paddingLen < 0)) return false;
+            final int inBlock = isEncrypt ? modulusLen - paddingLen : modulusLen;
+            if (inBlock <= 0) return false;
+            in = Utils.BytePool.obtain(inBlock);
+            out = Utils.BytePool.obtain(cipher.getOutputSize(inBlock));
+            for (; ; ) {
+                int len = 0;
+                int n;
+                while (len < inBlock && (n = is.read(in, len, inBlock - len)) != -1) {
+                    len += n;
+                }
+                if (len == 0) break;
+                os.write(out, 0, cipher.doFinal(in, 0, len, out, 0));
+                if (len < inBlock) break;
+            }
+            return true;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            Utils.BytePool.recycle(in);
+            Utils.BytePool.recycle(out);
+        }
+    }
+
+    private static Key getRSAKey(final byte[] key, final boolean isPublicKey)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        if (isPublicKey) {
+            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(key);
+            return KeyFactory.getInstance("RSA").generatePublic(keySpec);
+        } else {
+            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(key);
+            return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+        }
+    }
+
+    /**
+     * Return the bytes of RSA encryption or decryption, which are processed block by block.
+     * <p>The size of block is derived from the modulus of key and the padding, and the blocks
+     * are written into one buffer.</p>
+     */
+    private static byte[] rsaDoFinal(final Cipher cipher,
+                                     final Key rsaKey,
+                                     final byte[] data,
+                                     final boolean isEncrypt,
+                                     final String transformation)
+            throws InvalidKeyException, BadPaddingException, IllegalBlockSizeException,
+            ShortBufferException {
+        if (rsaKey == null) return null;
+        cipher.init(isEncrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, rsaKey);
+        final int modulusLen = getRSAModulusLength(rsaKey);
+        if (modulusLen <= 0) return cipher.doFinal(data);
+        final int inBlock;
+        if (isEncrypt) {
+            // the data is one block if the padding is unknown
+            final int paddingLen = getRSAPaddingLength(transformation);
+            if (paddingLen < 0 || modulusLen <= paddingLen) return cipher.doFinal(data);
+            inBlock = modulusLen - paddingLen;
+        } else {
+            // a block of plain data is encrypted into a block of modulus's length
+            inBlock = modulusLen;
+        }
+        // the provider knows the size of output, such as a whole block of decryption of NoPadding
+        final int outBlock = cipher.getOutputSize(inBlock);
+        final int len = data.length;
+        final int count = (len + inBlock - 1) / inBlock;
+        byte[] ret = new byte[count * outBlock];
+        int retLen = 0;
+        for (int index = 0; index < len; index += inBlock) {
+            retLen += cipher.doFinal(data, index, Math.min(inBlock, len - index), ret, retLen);
+        }
+        return retLen == ret.length ? ret : Arrays.copyOf(ret, retLen);
+    }
+
+    private static int getRSAModulusLength(final Key rsaKey) {
+        BigInteger modulus;
+        if (rsaKey instanceof RSAPublicKey) {
+            modulus = ((RSAPublicKey) rsaKey).getModulus();
+        } else if (rsaKey instanceof RSAPrivateKey) {
+            modulus = ((RSAPrivateKey) rsaKey).getModulus();
+        } else {
+            return -1;
+        }
+        return (modulus.bitLength() + 7) / 8;
+    }
+
+    /**
+     * Return the length of padding of RSA, PKCS#1 v1.5 is 11 bytes and OAEP is twice the
+     * length of digest plus 2 bytes, or -1 if the transformation has no padding, which
+     * depends on the provider, such as NoPadding of bare RSA on Android.
+     */
+    private static int getRSAPaddingLength(final String transformation) {
+        if (transformation.indexOf('/') < 0) return -1;
+        String padding = transformation.toUpperCase(Locale.US);
+        if (padding.endsWith("/NOPADDING")) return 0;
+        if (!padding.contains("OAEP")) return 11;
+        if (padding.contains("SHA-512") || padding.contains("SHA512")) return 2 * 64 + 2;
+        if (padding.contains("SHA-384") || padding.contains("SHA384")) return 2 * 48 + 2;
+        if (padding.contains("SHA-256") || padding.contains("SHA256")) return 2 * 32 + 2;
+        if (padding.contains("SHA-224") || padding.contains("SHA224")) return 2 * 28 + 2;
+        if (padding.contains("MD5")) return 2 * 16 + 2;
+        // OAEPPadding and OAEPWithSHA-1AndMGF1Padding
+        return 2 * 20 + 2;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // prepared key
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Return the prepared key of hmac encryption.
+     * <p>The key is parsed once, and each thread uses its own {@link Mac} which is initialized
+     * by the key, so the key can be used by threads many times.</p>
+     *
+     * @param key       The key.
+     * @param algorithm The name of hmac encryption, such as {@code HmacSHA256}.
+     * @return the prepared key of hmac encryption, {@code null} if the key is invalid
+     */
+    public static HmacKey prepareHmacKey(final byte[] key, final String algorithm) {
+        if (key == null || key.length == 0 || algorithm == null) return null;
+        HmacKey hmacKey = new HmacKey(new SecretKeySpec(key, algorithm));
+        // check the algorithm and key
+        if (hmacKey.getMac() == null) return null;
+        return hmacKey;
+    }
+
+    /**
+     * Return the prepared key of DES.
+     *
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DES/CBC/PKCS5Padding</i>.
+     * @return the prepared key of DES, {@code null} if the key is invalid
+     * @see #prepareAESKey(byte[], String)
+     */
+    public static SymmetricKey prepareDESKey(final byte[] key, final String transformation) {
+        return prepareSymmetricKey(key, "DES", transformation);
+    }
+
+    /**
+     * Return the prepared key of 3DES.
+     *
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>DESede/CBC/PKCS5Padding</i>.
+     * @return the prepared key of 3DES, {@code null} if the key is invalid
+     * @see #prepareAESKey(byte[], String)
+     */
+    public static SymmetricKey prepare3DESKey(final byte[] key, final String transformation) {
+        return prepareSymmetricKey(key, "DESede", transformation);
+    }
+
+    /**
+     * Return the prepared key of AES.
+     * <p>The key is parsed once, and each thread uses its own {@link Cipher}, so the key can
+     * be used by threads many times.</p>
+     *
+     * @param key            The key.
+     * @param transformation The name of the transformation, e.g., <i>AES/CBC/PKCS5Padding</i>.
+     * @return the prepared key of AES, {@code null} if the key is invalid
+     */
+    public static SymmetricKey prepareAESKey(final byte[] key, final String transformation) {
+        return prepareSymmetricKey(key, "AES", transformation);
+    }
+
+    private static SymmetricKey prepareSymmetricKey(final byte[] key,
+                                                    final String algorithm,
+                                                    final String transformation) {
+        if (key == null || key.length == 0 || transformation == null) return null;
+        try {
+            return new SymmetricKey(getSecretKey(key, algorithm), transformation);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Return the prepared key of RSA.
+     * <p>The key is parsed by {@link KeyFactory} once, and each thread uses its own
+     * {@link Cipher}, so the key can be used by threads many times.</p>
+     *
+     * @param key            The key.
+     * @param isPublicKey    True to use public key, false to use private key.
+     * @param transformation The name of the transformation, e.g., <i>RSA/ECB/PKCS1Padding</i>.
+     * @return the prepared key of RSA, {@code null} if the key is invalid
+     */
+    public static RSAKey prepareRSAKey(final byte[] key,
+                                       final boolean isPublicKey,
+                                       final String transformation) {
+        if (key == null || key.length == 0 || transformation == null) return null;
+        try {
+            return new RSAKey(getRSAKey(key, isPublicKey), transformation);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static final class HmacKey {
+
+        private final SecretKeySpec    mKey;
+        private final ThreadLocal<Mac> mMac = new ThreadLocal<>();
+
+        private HmacKey(final SecretKeySpec key) {
+            mKey = key;
+        }
+
+        /**
+         * Return the bytes of hmac encryption.
+         *
+         * @param data The data.
+         * @return the bytes of hmac encryption
+         */
+        public byte[] encrypt(final byte[] data) {
+            if (data == null || data.length == 0) return null;
+            Mac mac = getMac();
+            // it's reset after doFinal, so it needn't be initialized again
+            return mac == null ? null : mac.doFinal(data);
+        }
+
+        /**
+         * Return the hex string of hmac encryption.
+         *
+         * @param data The data.
+         * @return the hex string of hmac encryption
+         */
+        public String encryptToString(final byte[] data) {
+            return bytes2HexString(encrypt(data));
+        }
+
+        private Mac getMac() {
+            Mac mac = mMac.get();
+            if (mac != null) return mac;
+            try {
+                mac = Mac.getInstance(mKey.getAlgorithm());
+                mac.init(mKey);
+                mMac.set(mac);
+                return mac;
+            } catch (InvalidKeyException | NoSuchAlgorithmException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    public static final class SymmetricKey {
+
+        private final SecretKey           mKey;
+        private final String              mTransformation;
+        private final ThreadLocal<Cipher> mCipher = new ThreadLocal<>();
+
+        private SymmetricKey(final SecretKey key, final String transformation) {
+            mKey = key;
+            mTransformation = transformation;
+        }
+
+        /**
+         * Return the bytes of encryption.
+         * <p>The IV of GCM must be different in each encryption.</p>
+         *
+         * @param data The data.
+         * @param iv   The buffer with the IV, {@code null} if the transformation needn't it.
+         * @return the bytes of encryption
+         */
+        public byte[] encrypt(final byte[] data, final byte[] iv) {
+            return doFinal(data, iv, true);
+        }
+
+        /**
+         * Return the bytes of decryption.
+         *
+         * @param data The data.
+         * @param iv   The buffer with the IV, {@code null} if the transformation needn't it.
+         * @return the bytes of decryption
+         */
+        public byte[] decrypt(final byte[] data, final byte[] iv) {
+            return doFinal(data, iv, false);
+        }
+
+        private byte[] doFinal(final byte[] data, final byte[] iv, final boolean isEncrypt) {
+            if (data == null || data.length == 0) return null;
+            try {
+                Cipher cipher = mCipher.get();
+                if (cipher == null) {
+                    cipher = Cipher.getInstance(mTransformation);
+                    mCipher.set(cipher);
+                }
+                initSymmetricCipher(cipher, mKey, mTransformation, iv, isEncrypt);
+                return cipher.doFinal(data);
+            } catch (Throwable e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    public static final class RSAKey {
+
+        private final Key                 mKey;
+        private final String              mTransformation;
+        private final ThreadLocal<Cipher> mCipher = new ThreadLocal<>();
+
+        private RSAKey(final Key key, final String transformation) {
+            mKey = key;
+            mTransformation = transformation;
+        }
+
+        /**
+         * Return the bytes of RSA encryption.
+         *
+         * @param data The data.
+         * @return the bytes of RSA encryption
+         */
+        public byte[] encrypt(final byte[] data) {
+            return doFinal(data, true);
+        }
+
+        /**
+         * Return the bytes of RSA decryption.
+         *
+         * @param data The data.
+         * @return the bytes of RSA decryption
+         */
+        public byte[] decrypt(final byte[] data) {
+            return doFinal(data, false);
+        }
+
+        private byte[] doFinal(final byte[] data, final boolean isEncrypt) {
+            if (data == null || data.length == 0) return null;
+            try {
+                Cipher cipher = mCipher.get();
+                if (cipher == null) {
+                    cipher = Cipher.getInstance(mTransformation);
+                    mCipher.set(cipher);
+                }
+                return rsaDoFinal(cipher, mKey, data, isEncrypt, mTransformation);
+            } catch (Throwable e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // other utils methods
     ///////////////////////////////////////////////////////////////////////////
 
-    private static byte[] joins(final byte[] prefix, final byte[] suffix) {
-        byte[] ret = new byte[prefix.length + suffix.length];
-        System.arraycopy(prefix, 0, ret, 0, prefix.length);
-        System.arraycopy(suffix, 0, ret, prefix.length, suffix.length);
-        return ret;
+    /**
+     * Return the message digest of current thread, which is reset.
+     * <p>The engines are cached by thread, because {@code getInstance} looks up the providers
+     * every time, which costs more than the encryption of small data.</p>
+     */
+    private static MessageDigest getDigest(final String algorithm) throws NoSuchAlgorithmException {
+        Map<String, Object> engines = ENGINES.get();
+        String name = "MessageDigest." + algorithm;
+        MessageDigest md = (MessageDigest) engines.get(name);
+        if (md == null) {
+            md = MessageDigest.getInstance(algorithm);
+            engines.put(name, md);
+        } else {
+            md.reset();
+        }
+        return md;
+    }
+
+    /**
+     * Return the mac of current thread, it must be initialized before using.
+     */
+    private static Mac getMac(final String algorithm) throws NoSuchAlgorithmException {
+        Map<String, Object> engines = ENGINES.get();
+        String name = "Mac." + algorithm;
+        Mac mac = (Mac) engines.get(name);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm);
+            engines.put(name, mac);
+        }
+        return mac;
+    }
+
+    /**
+     * Return the cipher of current thread, it must be initialized before using.
+     */
+    private static Cipher getCipher(final String transformation)
+            throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Map<String, Object> engines = ENGINES.get();
+        String name = "Cipher." + transformation;
+        Cipher cipher = (Cipher) engines.get(name);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            engines.put(name, cipher);
+        }
+        return cipher;
     }
 
     private static final char HEX_DIGITS[] =
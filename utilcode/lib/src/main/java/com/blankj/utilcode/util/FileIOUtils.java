@@ -1,9 +1,16 @@
 package com.blankj.utilcode.util;
 
+import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
+
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -15,11 +22,21 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <pre>
@@ -31,7 +48,24 @@ import java.util.List;
  */
 public final class FileIOUtils {
 
-    private static int sBufferSize = 8192;
+    public static final int FSYNC_NONE      = 0;
+    public static final int FSYNC_PER_BATCH = 1;
+    public static final int FSYNC_ON_CLOSE  = 2;
+
+    @IntDef({FSYNC_NONE, FSYNC_PER_BATCH, FSYNC_ON_CLOSE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface FSYNC {
+    }
+
+    private static final Map<String, LineIndex> LINE_INDEX_CACHE =
+            new LinkedHashMap<String, LineIndex>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LineIndex> eldest) {
+                    return size() > 8;
+                }
+            };
+
+    private static volatile int sBufferSize = 8192;
 
     private FileIOUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
@@ -84,12 +118,45 @@ public final class FileIOUtils {
     public static boolean writeFileFromIS(final File file,
                                           final InputStream is,
                                           final boolean append) {
+        return writeFileFromIS(file, is, append, sBufferSize);
+    }
+
+    /**
+     * Write file from input stream.
+     *
+     * @param filePath   The path of file.
+     * @param is         The input stream.
+     * @param append     True to append, false otherwise.
+     * @param bufferSize The buffer's size of this call.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromIS(final String filePath,
+                                          final InputStream is,
+                                          final boolean append,
+                                          @IntRange(from = 1) final int bufferSize) {
+        return writeFileFromIS(getFileByPath(filePath), is, append, bufferSize);
+    }
+
+    /**
+     * Write file from input stream.
+     *
+     * @param file       The file.
+     * @param is         The input stream.
+     * @param append     True to append, false otherwise.
+     * @param bufferSize The buffer's size of this call.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean writeFileFromIS(final File file,
+                                          final InputStream is,
+                                          final boolean append,
+                                          @IntRange(from = 1) final int bufferSize) {
         if (!createOrExistsFile(file) || is == null) return false;
         OutputStream os = null;
+        byte[] data = Utils.BytePool.obtain(bufferSize);
         try {
-            os = new BufferedOutputStream(new FileOutputStream(file, append));
-            byte data[] = new byte[sBufferSize];
-            for (int len; (len = is.read(data)) != -1; ) {
+            os = new FileOutputStream(file, append);
+            // the buffer is filled before writing, so it needn't be buffered again
+            for (int len; (len = readFully(is, data, bufferSize)) > 0; ) {
                 os.write(data, 0, len);
             }
             return true;
@@ -97,6 +164,7 @@ public final class FileIOUtils {
             e.printStackTrace();
             return false;
         } finally {
+            Utils.BytePool.recycle(data);
             try {
                 is.close();
             } catch (IOException e) {
@@ -337,6 +405,52 @@ public final class FileIOUtils {
         }
     }
 
+    /**
+     * Open the writer which keeps the file open and writes each batch of buffers
+     * by one gathering write.
+     *
+     * @param filePath The path of file.
+     * @param append   True to append, false otherwise.
+     * @param fsync    The policy of fsync, it should be one of
+     *                 <ul>
+     *                 <li>{@link #FSYNC_NONE}</li>
+     *                 <li>{@link #FSYNC_PER_BATCH}</li>
+     *                 <li>{@link #FSYNC_ON_CLOSE}</li>
+     *                 </ul>
+     * @return the writer, {@code null} if the file can't be opened
+     */
+    public static BatchWriter openBatchWriter(final String filePath,
+                                              final boolean append,
+                                              @FSYNC final int fsync) {
+        return openBatchWriter(getFileByPath(filePath), append, fsync);
+    }
+
+    /**
+     * Open the writer which keeps the file open and writes each batch of buffers
+     * by one gathering write.
+     *
+     * @param file   The file.
+     * @param append True to append, false otherwise.
+     * @param fsync  The policy of fsync, it should be one of
+     *               <ul>
+     *               <li>{@link #FSYNC_NONE}</li>
+     *               <li>{@link #FSYNC_PER_BATCH}</li>
+     *               <li>{@link #FSYNC_ON_CLOSE}</li>
+     *               </ul>
+     * @return the writer, {@code null} if the file can't be opened
+     */
+    public static BatchWriter openBatchWriter(final File file,
+                                              final boolean append,
+                                              @FSYNC final int fsync) {
+        if (!createOrExistsFile(file)) return null;
+        try {
+            return new BatchWriter(new FileOutputStream(file, append).getChannel(), fsync);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Write file from string.
      *
@@ -506,6 +620,14 @@ public final class FileIOUtils {
                                              final String charsetName) {
         if (!isFileExists(file)) return null;
         if (st > end) return null;
+        if (isLineIndexCharset(charsetName)) {
+            // seek to the start line directly if the file has been indexed
+            LineIndex index = getCachedLineIndex(file);
+            if (index != null) {
+                List<String> lines = index.readLines(st, end, charsetName);
+                if (lines != null) return lines;
+            }
+        }
         BufferedReader reader = null;
         try {
             String line;
@@ -538,6 +660,77 @@ public final class FileIOUtils {
         }
     }
 
+    /**
+     * Return the index of lines in file, which is built by one pass over the mapped file.
+     * <p>The index is cached in memory and in the file of {@code .name.lidx} next to the file,
+     * both of them are valid until the length or last modified time of file changes, then
+     * {@link #readFile2List(File, int, int, String)} seeks to the start line by it too.</p>
+     * <p>The lines are split like {@link BufferedReader#readLine()}, so the index only works
+     * with the charset which encodes '\r' and '\n' in one byte, such as UTF-8 and GBK.</p>
+     *
+     * @param filePath The path of file.
+     * @return the index of lines in file
+     */
+    public static LineIndex getLineIndex(final String filePath) {
+        return getLineIndex(getFileByPath(filePath));
+    }
+
+    /**
+     * Return the index of lines in file, which is built by one pass over the mapped file.
+     * <p>The index is cached in memory and in the file of {@code .name.lidx} next to the file,
+     * both of them are valid until the length or last modified time of file changes, then
+     * {@link #readFile2List(File, int, int, String)} seeks to the start line by it too.</p>
+     * <p>The lines are split like {@link BufferedReader#readLine()}, so the index only works
+     * with the charset which encodes '\r' and '\n' in one byte, such as UTF-8 and GBK.</p>
+     *
+     * @param file The file.
+     * @return the index of lines in file
+     */
+    public static LineIndex getLineIndex(final File file) {
+        if (!isFileExists(file)) return null;
+        LineIndex index = getCachedLineIndex(file);
+        if (index != null) return index;
+        index = LineIndex.build(file);
+        if (index == null) return null;
+        synchronized (LINE_INDEX_CACHE) {
+            LINE_INDEX_CACHE.put(file.getAbsolutePath(), index);
+        }
+        // the directory may be read-only, then it's only cached in memory
+        index.save(getLineIndexFile(file));
+        return index;
+    }
+
+    private static LineIndex getCachedLineIndex(final File file) {
+        final String key = file.getAbsolutePath();
+        LineIndex index;
+        synchronized (LINE_INDEX_CACHE) {
+            index = LINE_INDEX_CACHE.get(key);
+        }
+        if (index != null && index.isValid()) return index;
+        index = LineIndex.load(file, getLineIndexFile(file));
+        synchronized (LINE_INDEX_CACHE) {
+            if (index == null) {
+                LINE_INDEX_CACHE.remove(key);
+            } else {
+                LINE_INDEX_CACHE.put(key, index);
+            }
+        }
+        return index;
+    }
+
+    private static File getLineIndexFile(final File file) {
+        return new File(file.getParentFile(), "." + file.getName() + ".lidx");
+    }
+
+    private static boolean isLineIndexCharset(final String charsetName) {
+        try {
+            byte[] bytes = isSpace(charsetName) ? "\r\n".getBytes() : "\r\n".getBytes(charsetName);
+            return bytes.length == 2 && bytes[0] == '\r' && bytes[1] == '\n';
+        } catch (UnsupportedEncodingException e) {
+            return false;
+        }
+    }
+
     /**
      * Return the string in file.
      *
@@ -608,9 +801,33 @@ public final class FileIOUtils {
      * @return the bytes in file
      */
     public static byte[] readFile2BytesByStream(final File file) {
+        return readFile2BytesByStream(file, sBufferSize);
+    }
+
+    /**
+     * Return the bytes in file by stream.
+     *
+     * @param filePath   The path of file.
+     * @param bufferSize The buffer's size of this call.
+     * @return the bytes in file
+     */
+    public static byte[] readFile2BytesByStream(final String filePath,
+                                                @IntRange(from = 1) final int bufferSize) {
+        return readFile2BytesByStream(getFileByPath(filePath), bufferSize);
+    }
+
+    /**
+     * Return the bytes in file by stream.
+     *
+     * @param file       The file.
+     * @param bufferSize The buffer's size of this call.
+     * @return the bytes in file
+     */
+    public static byte[] readFile2BytesByStream(final File file,
+                                                @IntRange(from = 1) final int bufferSize) {
         if (!isFileExists(file)) return null;
         try {
-            return is2Bytes(new FileInputStream(file));
+            return is2Bytes(new FileInputStream(file), bufferSize);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
             return null;
@@ -698,7 +915,255 @@ public final class FileIOUtils {
     }
 
     /**
-     * Set the buffer's size.
+     * Return the read-only view of mapped file, which isn't copied into heap.
+     *
+     * @param filePath The path of file.
+     * @return the read-only view of mapped file
+     */
+    public static ByteBuffer readFile2ByteBufferByMap(final String filePath) {
+        return readFile2ByteBufferByMap(getFileByPath(filePath));
+    }
+
+    /**
+     * Return the read-only view of mapped file, which isn't copied into heap.
+     *
+     * @param file The file.
+     * @return the read-only view of mapped file
+     */
+    public static ByteBuffer readFile2ByteBufferByMap(final File file) {
+        if (!isFileExists(file)) return null;
+        return readFile2ByteBufferByMap(file, 0, file.length());
+    }
+
+    /**
+     * Return the read-only view of mapped region of file, which isn't copied into heap.
+     * <p>A file larger than 2GB can be mapped region by region.</p>
+     *
+     * @param file     The file.
+     * @param position The position of region.
+     * @param size     The size of region, which is at most {@link Integer#MAX_VALUE}.
+     * @return the read-only view of mapped region of file
+     */
+    public static ByteBuffer readFile2ByteBufferByMap(final File file,
+                                                      final long position,
+                                                      final long size) {
+        if (!isFileExists(file)) return null;
+        if (position < 0 || size < 0 || size > Integer.MAX_VALUE) return null;
+        FileChannel fc = null;
+        try {
+            fc = new RandomAccessFile(file, "r").getChannel();
+            long len = Math.min(size, Math.max(0, fc.size() - position));
+            // the mapping is still valid after the channel is closed
+            return fc.map(FileChannel.MapMode.READ_ONLY, position, len).asReadOnlyBuffer();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                if (fc != null) {
+                    fc.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Read the file by chunk, the buffer is reused for every chunk.
+     *
+     * @param filePath The path of file.
+     * @param listener The listener of chunk.
+     * @return the count of read bytes, -1 if it fails
+     */
+    public static long readFileByChunk(final String filePath, final OnChunkListener listener) {
+        return readFileByChunk(getFileByPath(filePath), sBufferSize, listener);
+    }
+
+    /**
+     * Read the file by chunk, the buffer is reused for every chunk.
+     *
+     * @param file     The file.
+     * @param listener The listener of chunk.
+     * @return the count of read bytes, -1 if it fails
+     */
+    public static long readFileByChunk(final File file, final OnChunkListener listener) {
+        return readFileByChunk(file, sBufferSize, listener);
+    }
+
+    /**
+     * Read the file by chunk, the buffer is reused for every chunk.
+     *
+     * @param file      The file.
+     * @param chunkSize The size of chunk.
+     * @param listener  The listener of chunk.
+     * @return the count of read bytes, -1 if it fails
+     */
+    public static long readFileByChunk(final File file,
+                                       @IntRange(from = 1) final int chunkSize,
+                                       final OnChunkListener listener) {
+        if (!isFileExists(file) || listener == null) return -1;
+        InputStream is = null;
+        byte[] buffer = Utils.BytePool.obtain(chunkSize);
+        try {
+            is = new FileInputStream(file);
+            long position = 0;
+            int len;
+            while ((len = readFully(is, buffer, chunkSize)) > 0) {
+                boolean isContinue = listener.onChunk(position, buffer, len);
+                position += len;
+                if (!isContinue) break;
+            }
+            return position;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            Utils.BytePool.recycle(buffer);
+            try {
+                if (is != null) {
+                    is.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Read the file by line like {@link #readFile2List(File, String)} but the lines are
+     * decoded into a reused buffer, which isn't allocated for every line.
+     *
+     * @param filePath    The path of file.
+     * @param charsetName The name of charset.
+     * @param listener    The listener of line.
+     * @return the count of read lines, -1 if it fails
+     */
+    public static int readFileByLine(final String filePath,
+                                     final String charsetName,
+                                     final OnLineListener listener) {
+        return readFileByLine(getFileByPath(filePath), charsetName, listener);
+    }
+
+    /**
+     * Read the file by line like {@link #readFile2List(File, String)} but the lines are
+     * decoded into a reused buffer, which isn't allocated for every line.
+     *
+     * @param file        The file.
+     * @param charsetName The name of charset.
+     * @param listener    The listener of line.
+     * @return the count of read lines, -1 if it fails
+     */
+    public static int readFileByLine(final File file,
+                                     final String charsetName,
+                                     final OnLineListener listener) {
+        if (!isFileExists(file) || listener == null) return -1;
+        FileInputStream fis = null;
+        byte[] bytes = Utils.BytePool.obtain(sBufferSize);
+        try {
+            final CharsetDecoder decoder = (isSpace(charsetName)
+                    ? Charset.defaultCharset()
+                    : Charset.forName(charsetName))
+                    .newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            fis = new FileInputStream(file);
+            final FileChannel fc = fis.getChannel();
+            final ByteBuffer in = ByteBuffer.wrap(bytes);
+            char[] chars = new char[bytes.length];
+            CharBuffer out = CharBuffer.wrap(chars);
+            CharBuffer line = CharBuffer.wrap(chars);
+            int start = 0;// the start of current line
+            int scan = 0; // the position to scan the terminator
+            int count = 0;
+            boolean isCR = false;
+            boolean isInputEnd = false;
+            boolean isFlushing = false;
+            for (; ; ) {
+                CoderResult result;
+                if (isFlushing) {
+                    result = decoder.flush(out);
+                } else {
+                    if (!isInputEnd) isInputEnd = fc.read(in) == -1;
+                    in.flip();
+                    result = decoder.decode(in, out, isInputEnd);
+                    in.compact();
+                    if (isInputEnd && result.isUnderflow()) {
+                        isFlushing = true;
+                        result = decoder.flush(out);
+                    }
+                }
+                // the chars may overflow the buffer, then it's decoded again after moving
+                final boolean isEOF = isFlushing && result.isUnderflow();
+                final int end = out.position();
+                for (; scan < end; scan++) {
+                    final char c = chars[scan];
+                    if (isCR) {
+                        isCR = false;
+                        // "\r\n" is one terminator
+                        if (c == '\n') {
+                            start = scan + 1;
+                            continue;
+                        }
+                    }
+                    if (c == '\n' || c == '\r') {
+                        isCR = c == '\r';
+                        line.clear();
+                        line.limit(scan);
+                        line.position(start);
+                        ++count;
+                        if (!listener.onLine(count, line)) return count;
+                        start = scan + 1;
+                    }
+                }
+                if (isEOF) {
+                    if (start < end) {
+                        line.clear();
+                        line.limit(end);
+                        line.position(start);
+                        ++count;
+                        listener.onLine(count, line);
+                    }
+                    break;
+                }
+                // move the rest of line to the head, grow the buffer if the line fills it,
+                // leave two chars at least since a surrogate pair is decoded at once
+                final int rest = end - start;
+                if (rest > chars.length - 2) {
+                    final char[] newChars = new char[chars.length << 1];
+                    System.arraycopy(chars, start, newChars, 0, rest);
+                    chars = newChars;
+                    line = CharBuffer.wrap(chars);
+                } else {
+                    System.arraycopy(chars, start, chars, 0, rest);
+                }
+                out = CharBuffer.wrap(chars);
+                out.position(rest);
+                start = 0;
+                scan = rest;
+            }
+            return count;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        } catch (IllegalArgumentException e) {
+            // the charset is illegal or unsupported
+            e.printStackTrace();
+            return -1;
+        } finally {
+            Utils.BytePool.recycle(bytes);
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Set the buffer's size of the calls which don't take a buffer's size.
      * <p>Default size equals 8192 bytes.</p>
      *
      * @param bufferSize The buffer's size.
@@ -707,6 +1172,508 @@ public final class FileIOUtils {
         sBufferSize = bufferSize;
     }
 
+    public static final class BatchWriter implements Closeable {
+
+        private final FileChannel mChannel;
+        private final int         mFsync;
+
+        private long    mBytes;
+        private long    mBuffers;
+        private long    mBatches;
+        private long    mWrites;
+        private long    mSyncs;
+        private boolean mIsClosed;
+
+        private BatchWriter(final FileChannel channel, final int fsync) {
+            mChannel = channel;
+            mFsync = fsync;
+        }
+
+        /**
+         * Write the bytes as a batch.
+         *
+         * @param bytes The bytes.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public boolean write(final byte[] bytes) {
+            if (bytes == null) return false;
+            return write(ByteBuffer.wrap(bytes));
+        }
+
+        /**
+         * Write the string as a batch.
+         *
+         * @param content     The string of content.
+         * @param charsetName The name of charset.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public boolean write(final String content, final String charsetName) {
+            if (content == null) return false;
+            try {
+                return write(isSpace(charsetName) ? content.getBytes() : content.getBytes(charsetName));
+            } catch (UnsupportedEncodingException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        /**
+         * Write the buffers as a batch by gathering write, the buffers are consumed.
+         * <p>The buffers are written in order and synced after the batch if the policy
+         * is {@link #FSYNC_PER_BATCH}.</p>
+         *
+         * @param buffers The buffers.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public synchronized boolean write(final ByteBuffer... buffers) {
+            if (mIsClosed || buffers == null) return false;
+            try {
+                int offset = 0;
+                while (offset < buffers.length) {
+                    // the gathering write may write a part of the buffers
+                    if (buffers[offset].hasRemaining()) {
+                        mBytes += mChannel.write(buffers, offset, buffers.length - offset);
+                        mWrites++;
+                    }
+                    while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+                        offset++;
+                    }
+                }
+                mBuffers += buffers.length;
+                mBatches++;
+                if (mFsync == FSYNC_PER_BATCH) {
+                    mChannel.force(false);
+                    mSyncs++;
+                }
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        /**
+         * Sync the written bytes to the device.
+         *
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public synchronized boolean sync() {
+            if (mIsClosed) return false;
+            try {
+                mChannel.force(false);
+                mSyncs++;
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        /**
+         * Close the writer, which is synced first if the policy is {@link #FSYNC_ON_CLOSE}.
+         */
+        @Override
+        public synchronized void close() {
+            if (mIsClosed) return;
+            mIsClosed = true;
+            try {
+                if (mFsync == FSYNC_ON_CLOSE) {
+                    mChannel.force(false);
+                    mSyncs++;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                try {
+                    mChannel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Return the stats of writer.
+         *
+         * @return the stats of writer
+         */
+        public synchronized WriterStats getStats() {
+            return new WriterStats(mBytes, mBuffers, mBatches, mWrites, mSyncs);
+        }
+    }
+
+    public static final class WriterStats {
+        private final long mBytes;
+        private final long mBuffers;
+        private final long mBatches;
+        private final long mWrites;
+        private final long mSyncs;
+
+        WriterStats(final long bytes,
+                    final long buffers,
+                    final long batches,
+                    final long writes,
+                    final long syncs) {
+            mBytes = bytes;
+            mBuffers = buffers;
+            mBatches = batches;
+            mWrites = writes;
+            mSyncs = syncs;
+        }
+
+        /**
+         * Return the count of written bytes.
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * Return the count of written buffers.
+         */
+        public long getBuffers() {
+            return mBuffers;
+        }
+
+        /**
+         * Return the count of written batches.
+         */
+        public long getBatches() {
+            return mBatches;
+        }
+
+        /**
+         * Return the count of write calls.
+         */
+        public long getWrites() {
+            return mWrites;
+        }
+
+        /**
+         * Return the count of fsync calls.
+         */
+        public long getSyncs() {
+            return mSyncs;
+        }
+
+        /**
+         * Return the count of syscalls which are saved, compared with writing each buffer
+         * by its own open, write and close as {@link #writeFileFromBytesByStream(File, byte[], boolean)}.
+         */
+        public long getSavedSyscalls() {
+            return Math.max(0, 3 * mBuffers - (2 + mWrites));
+        }
+
+        @Override
+        public String toString() {
+            return "bytes: " + mBytes + ", buffers: " + mBuffers + ", batches: " + mBatches
+                    + ", writes: " + mWrites + ", syncs: " + mSyncs
+                    + ", saved syscalls: " + getSavedSyscalls();
+        }
+    }
+
+    public static final class LineIndex {
+
+        private static final int  MAGIC     = 0x4C494458;
+        private static final long MAP_SIZE  = 32 * 1024 * 1024;
+        private static final int  SCAN_SIZE = 64 * 1024;
+        private static final int  MAX_LINE  = Integer.MAX_VALUE - 8;
+
+        private final File   mFile;
+        private final long   mLength;
+        private final long   mLastModified;
+        private final long[] mOffsets;// the offset of each line's start
+        private final int    mCount;
+
+        private LineIndex(final File file,
+                          final long length,
+                          final long lastModified,
+                          final long[] offsets,
+                          final int count) {
+            mFile = file;
+            mLength = length;
+            mLastModified = lastModified;
+            mOffsets = offsets;
+            mCount = count;
+        }
+
+        /**
+         * Return the count of lines in file.
+         *
+         * @return the count of lines in file
+         */
+        public int getLineCount() {
+            return mCount;
+        }
+
+        /**
+         * Return the offset of line's start in file.
+         *
+         * @param line The line's index, which starts from 1.
+         * @return the offset of line's start in file, -1 if the line doesn't exist
+         */
+        public long getLineOffset(final int line) {
+            if (line < 1 || line > mCount) return -1;
+            return mOffsets[line - 1];
+        }
+
+        /**
+         * Return whether the file doesn't change since it was indexed.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isValid() {
+            return mFile.length() == mLength && mFile.lastModified() == mLastModified;
+        }
+
+        /**
+         * Return the line in file.
+         *
+         * @param line        The line's index, which starts from 1.
+         * @param charsetName The name of charset.
+         * @return the line in file, {@code null} if the line doesn't exist or the file changed
+         */
+        public String readLine(final int line, final String charsetName) {
+            List<String> lines = readLines(line, line, charsetName);
+            return lines == null || lines.isEmpty() ? null : lines.get(0);
+        }
+
+        /**
+         * Return the lines in file, which are read from the start line directly.
+         *
+         * @param st          The line's index of start.
+         * @param end         The line's index of end.
+         * @param charsetName The name of charset.
+         * @return the lines in file, {@code null} if the file changed or a line is too long
+         */
+        public List<String> readLines(final int st, final int end, final String charsetName) {
+            if (st > end || !isValid()) return null;
+            final int from = Math.max(st, 1);
+            final int to = Math.min(end, mCount);
+            if (from > to) return new ArrayList<>();
+            RandomAccessFile raf = null;
+            byte[] bytes = null;
+            try {
+                raf = new RandomAccessFile(mFile, "r");
+                raf.seek(mOffsets[from - 1]);
+                List<String> list = new ArrayList<>(to - from + 1);
+                int line = from;
+                while (line <= to) {
+                    // read the lines in chunk, the chunk holds one line at least
+                    final long start = mOffsets[line - 1];
+                    int last = line;
+                    while (last < to && getLineEnd(last + 1) - start <= SCAN_SIZE) {
+                        last++;
+                    }
+                    final long len = getLineEnd(last) - start;
+                    if (len > MAX_LINE) return null;
+                    if (bytes == null || bytes.length < len) {
+                        Utils.BytePool.recycle(bytes);
+                        bytes = Utils.BytePool.obtain((int) len);
+                    }
+                    raf.readFully(bytes, 0, (int) len);
+                    for (; line <= last; line++) {
+                        int s = (int) (mOffsets[line - 1] - start);
+                        int e = (int) (getLineEnd(line) - start);
+                        // strip the line's terminator
+                        if (e > s && bytes[e - 1] == '\n') e--;
+                        if (e > s && bytes[e - 1] == '\r') e--;
+                        list.add(isSpace(charsetName)
+                                ? new String(bytes, s, e - s)
+                                : new String(bytes, s, e - s, charsetName));
+                    }
+                }
+                return list;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                Utils.BytePool.recycle(bytes);
+                try {
+                    if (raf != null) {
+                        raf.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private long getLineEnd(final int line) {
+            return line < mCount ? mOffsets[line] : mLength;
+        }
+
+        private static LineIndex build(final File file) {
+            final long lastModified = file.lastModified();
+            FileChannel fc = null;
+            byte[] buffer = null;
+            try {
+                fc = new RandomAccessFile(file, "r").getChannel();
+                final long size = fc.size();
+                long[] offsets = new long[16];
+                int count = 0;
+                if (size > 0) offsets[count++] = 0;
+                buffer = Utils.BytePool.obtain(SCAN_SIZE);
+                boolean isCR = false;
+                for (long base = 0; base < size; base += MAP_SIZE) {
+                    MappedByteBuffer mbb =
+                            fc.map(FileChannel.MapMode.READ_ONLY, base, Math.min(MAP_SIZE, size - base));
+                    long position = base;
+                    while (mbb.hasRemaining()) {
+                        final int len = Math.min(SCAN_SIZE, mbb.remaining());
+                        mbb.get(buffer, 0, len);
+                        for (int i = 0; i < len; i++, position++) {
+                            final byte b = buffer[i];
+                            long next = -1;
+                            if (isCR) {
+                                isCR = false;
+                                // "\r\n" is one terminator
+                                next = b == '\n' ? position + 1 : position;
+                            }
+                            if (b == '\r') {
+                                isCR = true;
+                            } else if (b == '\n') {
+                                next = position + 1;
+                            }
+                            if (next > 0 && next < size) {
+                                if (count == offsets.length) {
+                                    offsets = Arrays.copyOf(offsets, count << 1);
+                                }
+                                offsets[count++] = next;
+                            }
+                        }
+                    }
+                }
+                return new LineIndex(file, size, lastModified, offsets, count);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                Utils.BytePool.recycle(buffer);
+                try {
+                    if (fc != null) {
+                        fc.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private static LineIndex load(final File file, final File indexFile) {
+            if (!indexFile.isFile()) return null;
+            DataInputStream is = null;
+            try {
+                is = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+                if (is.readInt() != MAGIC) return null;
+                final long length = is.readLong();
+                final long lastModified = is.readLong();
+                if (file.length() != length || file.lastModified() != lastModified) return null;
+                final int count = is.readInt();
+                final long[] offsets = new long[Math.max(count, 1)];
+                long offset = 0;
+                for (int i = 0; i < count; i++) {
+                    offset += readVarLong(is);
+                    offsets[i] = offset;
+                }
+                return new LineIndex(file, length, lastModified, offsets, count);
+            } catch (IOException e) {
+                // the index is broken, it will be built again
+                return null;
+            } finally {
+                try {
+                    if (is != null) {
+                        is.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private boolean save(final File indexFile) {
+            final File tmpFile = new File(indexFile.getPath() + ".tmp");
+            DataOutputStream os = null;
+            boolean isSuccess = false;
+            try {
+                os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+                os.writeInt(MAGIC);
+                os.writeLong(mLength);
+                os.writeLong(mLastModified);
+                os.writeInt(mCount);
+                // the offsets are saved as the deltas of varint, which are short for lines
+                long prev = 0;
+                for (int i = 0; i < mCount; i++) {
+                    writeVarLong(os, mOffsets[i] - prev);
+                    prev = mOffsets[i];
+                }
+                os.close();
+                os = null;
+                isSuccess = tmpFile.renameTo(indexFile);
+                return isSuccess;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                try {
+                    if (os != null) {
+                        os.close();
+                    }
+                } catch (IOException ignore) {
+                }
+                if (!isSuccess) {
+                    //noinspection ResultOfMethodCallIgnored
+                    tmpFile.delete();
+                }
+            }
+        }
+
+        private static void writeVarLong(final DataOutputStream os, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                os.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            os.writeByte((int) value);
+        }
+
+        private static long readVarLong(final DataInputStream is) throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final byte b = is.readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // interface
+    ///////////////////////////////////////////////////////////////////////////
+
+    public interface OnChunkListener {
+        /**
+         * Called for each chunk, the buffer is reused by the next chunk.
+         *
+         * @param position The position of chunk in file.
+         * @param buffer   The buffer of chunk.
+         * @param length   The length of chunk.
+         * @return {@code true}: continue<br>{@code false}: stop
+         */
+        boolean onChunk(long position, byte[] buffer, int length);
+    }
+
+    public interface OnLineListener {
+        /**
+         * Called for each line, the line is reused by the next line,
+         * call {@code line.toString()} to keep it.
+         *
+         * @param lineNumber The number of line, which starts from 1.
+         * @param line       The line without terminator.
+         * @return {@code true}: continue<br>{@code false}: stop
+         */
+        boolean onLine(int lineNumber, CharSequence line);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // other utils methods
     ///////////////////////////////////////////////////////////////////////////
@@ -749,14 +1716,26 @@ public final class FileIOUtils {
         return true;
     }
 
-    private static byte[] is2Bytes(final InputStream is) {
+    private static int readFully(final InputStream is,
+                                 final byte[] buffer,
+                                 final int size) throws IOException {
+        int len = 0;
+        while (len < size) {
+            int read = is.read(buffer, len, size - len);
+            if (read == -1) break;
+            len += read;
+        }
+        return len;
+    }
+
+    private static byte[] is2Bytes(final InputStream is, final int bufferSize) {
         if (is == null) return null;
         ByteArrayOutputStream os = null;
+        byte[] b = Utils.BytePool.obtain(bufferSize);
         try {
             os = new ByteArrayOutputStream();
-            byte[] b = new byte[sBufferSize];
             int len;
-            while ((len = is.read(b, 0, sBufferSize)) != -1) {
+            while ((len = is.read(b, 0, bufferSize)) != -1) {
                 os.write(b, 0, len);
             }
             return os.toByteArray();
@@ -764,6 +1743,7 @@ public final class FileIOUtils {
             e.printStackTrace();
             return null;
         } finally {
+            Utils.BytePool.recycle(b);
             try {
                 is.close();
             } catch (IOException e) {
@@ -1,22 +1,35 @@
 package com.blankj.utilcode.util;
 
+import android.support.annotation.IntRange;
+import android.util.Log;
+
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -30,7 +43,8 @@ import javax.net.ssl.HttpsURLConnection;
  */
 public final class FileUtils {
 
-    private static final String LINE_SEP = System.getProperty("line.separator");
+    private static final String LINE_SEP      = System.getProperty("line.separator");
+    private static final long   TRANSFER_SIZE = 8 * 1024 * 1024;
 
     private FileUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
@@ -268,6 +282,56 @@ public final class FileUtils {
         return copyOrMoveDir(srcDir, destDir, listener, false);
     }
 
+    /**
+     * Copy the directory by the caller and the threads of IO pool in parallel.
+     * <p>The existing files in destination directory are overwritten.</p>
+     *
+     * @param srcDir      The source directory.
+     * @param destDir     The destination directory.
+     * @param parallelism The maximum count of threads which copy at the same time.
+     * @param token       The token to cancel the copy, which can be null.
+     * @return the result of copy, {@code null} if the directories are invalid
+     */
+    public static DirResult copyDirParallel(final File srcDir,
+                                            final File destDir,
+                                            @IntRange(from = 1) final int parallelism,
+                                            final CancelToken token) {
+        if (srcDir == null || destDir == null) return null;
+        // destDir's path locate in srcDir's path then return null
+        String srcPath = srcDir.getPath() + File.separator;
+        String destPath = destDir.getPath() + File.separator;
+        if (destPath.contains(srcPath)) return null;
+        if (!isDir(srcDir)) return null;
+        return new DirWalker(token) {
+            private final OnProgressListener mListener = new OnProgressListener() {
+                @Override
+                public boolean onProgress(long current, long total) {
+                    return !mToken.isCancelled();
+                }
+            };
+
+            @Override
+            boolean onEnterDir(final Node node) {
+                if (!createOrExistsDir(node.dest)) {
+                    mFailedCount.incrementAndGet();
+                    return false;
+                }
+                if (node.parent != null) mDirCount.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            void onFile(final Node node, final File file) {
+                if (copyFileByChannel(file, new File(node.dest, file.getName()), mListener)) {
+                    mFileCount.incrementAndGet();
+                    mLength.addAndGet(file.length());
+                } else if (!mToken.isCancelled()) {
+                    mFailedCount.incrementAndGet();
+                }
+            }
+        }.walk(srcDir, destDir, parallelism);
+    }
+
     /**
      * Copy the file.
      *
@@ -320,6 +384,39 @@ public final class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, false);
     }
 
+    /**
+     * Copy the file.
+     *
+     * @param srcFilePath      The path of source file.
+     * @param destFilePath     The path of destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener, which can cancel the copy.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean copyFile(final String srcFilePath,
+                                   final String destFilePath,
+                                   final OnReplaceListener listener,
+                                   final OnProgressListener progressListener) {
+        return copyFile(getFileByPath(srcFilePath), getFileByPath(destFilePath),
+                listener, progressListener);
+    }
+
+    /**
+     * Copy the file.
+     *
+     * @param srcFile          The source file.
+     * @param destFile         The destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener, which can cancel the copy.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean copyFile(final File srcFile,
+                                   final File destFile,
+                                   final OnReplaceListener listener,
+                                   final OnProgressListener progressListener) {
+        return copyOrMoveFile(srcFile, destFile, listener, progressListener, false);
+    }
+
     /**
      * Move the directory.
      *
@@ -424,6 +521,41 @@ public final class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, true);
     }
 
+    /**
+     * Move the file.
+     *
+     * @param srcFilePath      The path of source file.
+     * @param destFilePath     The path of destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener, which can cancel the move.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean moveFile(final String srcFilePath,
+                                   final String destFilePath,
+                                   final OnReplaceListener listener,
+                                   final OnProgressListener progressListener) {
+        return moveFile(getFileByPath(srcFilePath), getFileByPath(destFilePath),
+                listener, progressListener);
+    }
+
+    /**
+     * Move the file.
+     * <p>It is renamed if the destination is on the same file system,
+     * otherwise it is copied and deleted.</p>
+     *
+     * @param srcFile          The source file.
+     * @param destFile         The destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener, which can cancel the move.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean moveFile(final File srcFile,
+                                   final File destFile,
+                                   final OnReplaceListener listener,
+                                   final OnProgressListener progressListener) {
+        return copyOrMoveFile(srcFile, destFile, listener, progressListener, true);
+    }
+
     private static boolean copyOrMoveDir(final File srcDir,
                                          final File destDir,
                                          final boolean isMove) {
@@ -454,6 +586,10 @@ public final class FileUtils {
                 return true;
             }
         }
+        // rename it directly if they are on the same file system
+        if (isMove && createOrExistsDir(destDir.getParentFile()) && srcDir.renameTo(destDir)) {
+            return true;
+        }
         if (!createOrExistsDir(destDir)) return false;
         File[] files = srcDir.listFiles();
         for (File file : files) {
@@ -482,6 +618,14 @@ public final class FileUtils {
                                           final File destFile,
                                           final OnReplaceListener listener,
                                           final boolean isMove) {
+        return copyOrMoveFile(srcFile, destFile, listener, null, isMove);
+    }
+
+    private static boolean copyOrMoveFile(final File srcFile,
+                                          final File destFile,
+                                          final OnReplaceListener listener,
+                                          final OnProgressListener progressListener,
+                                          final boolean isMove) {
         if (srcFile == null || destFile == null) return false;
         // srcFile equals destFile then return false
         if (srcFile.equals(destFile)) return false;
@@ -497,12 +641,75 @@ public final class FileUtils {
             }
         }
         if (!createOrExistsDir(destFile.getParentFile())) return false;
+        // rename it directly if they are on the same file system
+        if (isMove) {
+            final long length = srcFile.length();
+            if (srcFile.renameTo(destFile)) {
+                if (progressListener != null) {
+                    progressListener.onProgress(length, length);
+                }
+                return true;
+            }
+        }
+        return copyFileByChannel(srcFile, destFile, progressListener)
+                && !(isMove && !deleteFile(srcFile));
+    }
+
+    /**
+     * Copy the file by {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * which lets the kernel copy the bytes without the buffer of java.
+     * The destination file is deleted if it fails, such as the source file is truncated
+     * while copying, or is cancelled.
+     */
+    private static boolean copyFileByChannel(final File srcFile,
+                                             final File destFile,
+                                             final OnProgressListener listener) {
+        FileInputStream fis = null;
+        FileOutputStream fos = null;
+        boolean isSuccess = false;
         try {
-            return writeFileFromIS(destFile, new FileInputStream(srcFile))
-                    && !(isMove && !deleteFile(srcFile));
-        } catch (FileNotFoundException e) {
+            fis = new FileInputStream(srcFile);
+            fos = new FileOutputStream(destFile);
+            final FileChannel in = fis.getChannel();
+            final FileChannel out = fos.getChannel();
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long count = in.transferTo(position, Math.min(TRANSFER_SIZE, size - position), out);
+                if (count <= 0) {
+                    Log.e("FileUtils", srcFile + " is truncated while copying!");
+                    return false;
+                }
+                position += count;
+                if (listener != null && !listener.onProgress(position, size)) return false;
+            }
+            if (listener != null && size == 0) {
+                listener.onProgress(0, 0);
+            }
+            isSuccess = true;
+            return true;
+        } catch (IOException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            try {
+                if (fis != null) {
+                    fis.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                if (fos != null) {
+                    fos.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                isSuccess = false;
+            }
+            if (!isSuccess && destFile.exists() && !destFile.delete()) {
+                Log.e("FileUtils", "delete " + destFile + " failed!");
+            }
         }
     }
 
@@ -565,6 +772,70 @@ public final class FileUtils {
         return dir.delete();
     }
 
+    /**
+     * Delete the directory by the caller and the threads of IO pool in parallel.
+     *
+     * @param dir         The directory.
+     * @param parallelism The maximum count of threads which delete at the same time.
+     * @param token       The token to cancel the deletion, which can be null.
+     * @return the result of deletion, {@code null} if it isn't a directory
+     */
+    public static DirResult deleteDirParallel(final File dir,
+                                              @IntRange(from = 1) final int parallelism,
+                                              final CancelToken token) {
+        return deleteDirParallel(dir, true, parallelism, token);
+    }
+
+    /**
+     * Delete all in directory by the caller and the threads of IO pool in parallel.
+     *
+     * @param dir         The directory.
+     * @param parallelism The maximum count of threads which delete at the same time.
+     * @param token       The token to cancel the deletion, which can be null.
+     * @return the result of deletion, {@code null} if it isn't a directory
+     */
+    public static DirResult deleteAllInDirParallel(final File dir,
+                                                   @IntRange(from = 1) final int parallelism,
+                                                   final CancelToken token) {
+        return deleteDirParallel(dir, false, parallelism, token);
+    }
+
+    private static DirResult deleteDirParallel(final File dir,
+                                               final boolean isDeleteSelf,
+                                               final int parallelism,
+                                               final CancelToken token) {
+        if (dir == null) return null;
+        // dir doesn't exist then nothing to delete
+        if (!dir.exists()) return new DirResult(0, 0, 0, 0, false);
+        if (!dir.isDirectory()) return null;
+        return new DirWalker(token) {
+            @Override
+            boolean onEnterDir(final Node node) {
+                return true;
+            }
+
+            @Override
+            void onFile(final Node node, final File file) {
+                if (file.delete()) {
+                    mFileCount.incrementAndGet();
+                } else {
+                    mFailedCount.incrementAndGet();
+                }
+            }
+
+            @Override
+            void onExitDir(final Node node) {
+                // the directory isn't empty if it's cancelled
+                if (mToken.isCancelled() || (node.parent == null && !isDeleteSelf)) return;
+                if (node.dir.delete()) {
+                    mDirCount.incrementAndGet();
+                } else {
+                    mFailedCount.incrementAndGet();
+                }
+            }
+        }.walk(dir, null, parallelism);
+    }
+
     /**
      * Delete the file.
      *
@@ -792,6 +1063,103 @@ public final class FileUtils {
         return list;
     }
 
+    /**
+     * Return the files in directory and its subdirectories, which are listed by the
+     * caller and the threads of IO pool in parallel.
+     * <p>The order of files is undefined.</p>
+     *
+     * @param dir         The directory.
+     * @param parallelism The maximum count of threads which list at the same time.
+     * @param token       The token to cancel the listing, which can be null.
+     * @return the files in directory, {@code null} if it isn't a directory
+     */
+    public static List<File> listFilesInDirParallel(final File dir,
+                                                    @IntRange(from = 1) final int parallelism,
+                                                    final CancelToken token) {
+        return listFilesInDirParallel(dir, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return true;
+            }
+        }, parallelism, token);
+    }
+
+    /**
+     * Return the files that satisfy the filter in directory and its subdirectories,
+     * which are listed by the caller and the threads of IO pool in parallel.
+     * <p>The order of files is undefined and the filter is called concurrently.</p>
+     *
+     * @param dir         The directory.
+     * @param filter      The filter.
+     * @param parallelism The maximum count of threads which list at the same time.
+     * @param token       The token to cancel the listing, which can be null.
+     * @return the files that satisfy the filter in directory, {@code null} if it isn't a directory
+     */
+    public static List<File> listFilesInDirParallel(final File dir,
+                                                    final FileFilter filter,
+                                                    @IntRange(from = 1) final int parallelism,
+                                                    final CancelToken token) {
+        if (!isDir(dir)) return null;
+        final Queue<File> files = new ConcurrentLinkedQueue<>();
+        new DirWalker(token) {
+            @Override
+            boolean onEnterDir(final Node node) {
+                if (node.parent != null && filter.accept(node.dir)) {
+                    files.add(node.dir);
+                }
+                return true;
+            }
+
+            @Override
+            void onFile(final Node node, final File file) {
+                if (filter.accept(file)) {
+                    files.add(file);
+                }
+            }
+        }.walk(dir, null, parallelism);
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Return the files in directory lazily, which are listed while iterating,
+     * so breaking the iteration stops the listing.
+     *
+     * @param dir         The directory.
+     * @param isRecursive True to traverse subdirectories, false otherwise.
+     * @return the iterable of files in directory, {@code null} if it isn't a directory
+     */
+    public static Iterable<File> iterateFilesInDir(final File dir, final boolean isRecursive) {
+        return iterateFilesInDirWithFilter(dir, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return true;
+            }
+        }, isRecursive);
+    }
+
+    /**
+     * Return the files that satisfy the filter in directory lazily, which are listed
+     * while iterating, so breaking the iteration stops the listing.
+     * <p>The order is the same as {@link #listFilesInDirWithFilter(File, FileFilter, boolean)}.</p>
+     *
+     * @param dir         The directory.
+     * @param filter      The filter.
+     * @param isRecursive True to traverse subdirectories, false otherwise.
+     * @return the iterable of files that satisfy the filter in directory,
+     * {@code null} if it isn't a directory
+     */
+    public static Iterable<File> iterateFilesInDirWithFilter(final File dir,
+                                                             final FileFilter filter,
+                                                             final boolean isRecursive) {
+        if (!isDir(dir)) return null;
+        return new Iterable<File>() {
+            @Override
+            public Iterator<File> iterator() {
+                return new FileIterator(dir, filter, isRecursive);
+            }
+        };
+    }
+
     /**
      * Return the time that the file was last modified.
      *
@@ -984,6 +1352,35 @@ public final class FileUtils {
         return len;
     }
 
+    /**
+     * Return the length of directory, which is summed by the caller and the threads of
+     * IO pool in parallel.
+     *
+     * @param dir         The directory.
+     * @param parallelism The maximum count of threads which stat at the same time.
+     * @param token       The token to cancel the summing, which can be null.
+     * @return the result which {@link DirResult#getLength()} is the length of directory,
+     * {@code null} if it isn't a directory
+     */
+    public static DirResult getDirLengthParallel(final File dir,
+                                                 @IntRange(from = 1) final int parallelism,
+                                                 final CancelToken token) {
+        if (!isDir(dir)) return null;
+        return new DirWalker(token) {
+            @Override
+            boolean onEnterDir(final Node node) {
+                if (node.parent != null) mDirCount.incrementAndGet();
+                return true;
+            }
+
+            @Override
+            void onFile(final Node node, final File file) {
+                mFileCount.incrementAndGet();
+                mLength.addAndGet(file.length());
+            }
+        }.walk(dir, null, parallelism);
+    }
+
     /**
      * Return the length of file.
      *
@@ -1057,30 +1454,7 @@ public final class FileUtils {
      * @return the md5 of file
      */
     public static byte[] getFileMD5(final File file) {
-        if (file == null) return null;
-        DigestInputStream dis = null;
-        try {
-            FileInputStream fis = new FileInputStream(file);
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            dis = new DigestInputStream(fis, md);
-            byte[] buffer = new byte[1024 * 256];
-            while (true) {
-                if (!(dis.read(buffer) > 0)) break;
-            }
-            md = dis.getMessageDigest();
-            return md.digest();
-        } catch (NoSuchAlgorithmException | IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (dis != null) {
-                    dis.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return null;
+        return EncryptUtils.encryptMD5File(file);
     }
 
     /**
@@ -1184,6 +1558,595 @@ public final class FileUtils {
         return filePath.substring(lastPoi + 1);
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // parallel directory
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static final class CancelToken {
+        private volatile boolean mIsCancelled;
+
+        /**
+         * Cancel the operation, the files which are being handled are finished.
+         */
+        public void cancel() {
+            mIsCancelled = true;
+        }
+
+        /**
+         * Return whether the operation is cancelled.
+         *
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+    }
+
+    public static final class DirResult {
+        private final int     mFileCount;
+        private final int     mDirCount;
+        private final long    mLength;
+        private final int     mFailedCount;
+        private final boolean mIsCancelled;
+
+        DirResult(final int fileCount,
+                  final int dirCount,
+                  final long length,
+                  final int failedCount,
+                  final boolean isCancelled) {
+            mFileCount = fileCount;
+            mDirCount = dirCount;
+            mLength = length;
+            mFailedCount = failedCount;
+            mIsCancelled = isCancelled;
+        }
+
+        /**
+         * Return the count of files which have been handled.
+         */
+        public int getFileCount() {
+            return mFileCount;
+        }
+
+        /**
+         * Return the count of subdirectories which have been handled.
+         */
+        public int getDirCount() {
+            return mDirCount;
+        }
+
+        /**
+         * Return the count of bytes of files which have been summed or copied.
+         */
+        public long getLength() {
+            return mLength;
+        }
+
+        /**
+         * Return the count of files and directories which failed.
+         */
+        public int getFailedCount() {
+            return mFailedCount;
+        }
+
+        /**
+         * Return whether the operation was cancelled before it finished.
+         */
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        /**
+         * Return whether all of files and directories have been handled.
+         */
+        public boolean isSuccess() {
+            return mFailedCount == 0 && !mIsCancelled;
+        }
+
+        @Override
+        public String toString() {
+            return "files: " + mFileCount + ", dirs: " + mDirCount + ", length: " + mLength
+                    + ", failed: " + mFailedCount + ", cancelled: " + mIsCancelled;
+        }
+    }
+
+    /**
+     * The walker of directory tree, which is walked by the caller and at most
+     * (parallelism - 1) helpers on the IO pool of {@link ThreadUtils}.
+     * <p>The children of directory are handled in batches, so the workers share a flat
+     * directory of many files too, and the directory is exited after all of its children.</p>
+     */
+    private abstract static class DirWalker {
+
+        private static final int BATCH_SIZE = 256;
+
+        final CancelToken   mToken;
+        final AtomicInteger mFileCount   = new AtomicInteger();
+        final AtomicInteger mDirCount    = new AtomicInteger();
+        final AtomicLong    mLength      = new AtomicLong();
+        final AtomicInteger mFailedCount = new AtomicInteger();
+
+        private final Object          mLock  = new Object();
+        private final Deque<Runnable> mQueue = new ArrayDeque<>();
+        private       int             mPending;// guarded by mLock, count of queued and running
+
+        DirWalker(final CancelToken token) {
+            mToken = token == null ? new CancelToken() : token;
+        }
+
+        /**
+         * Called before the directory is listed.
+         *
+         * @return {@code true}: walk into it<br>{@code false}: skip it
+         */
+        abstract boolean onEnterDir(Node node);
+
+        abstract void onFile(Node node, File file);
+
+        /**
+         * Called after all of children in directory are done.
+         */
+        void onExitDir(Node node) {
+        }
+
+        final DirResult walk(final File root, final File dest, final int parallelism) {
+            final Node rootNode = new Node(root, dest, null);
+            if (onEnterDir(rootNode)) {
+                post(new ListTask(rootNode));
+                final Runnable helper = new Runnable() {
+                    @Override
+                    public void run() {
+                        work();
+                    }
+                };
+                for (int i = 1; i < parallelism; i++) {
+                    try {
+                        ThreadUtils.getIoPool().execute(helper);
+                    } catch (RejectedExecutionException ignore) {
+                        // the caller works anyway
+                        break;
+                    }
+                }
+                work();
+            }
+            return new DirResult(mFileCount.get(), mDirCount.get(), mLength.get(),
+                    mFailedCount.get(), mToken.isCancelled());
+        }
+
+        private void post(final Runnable task) {
+            synchronized (mLock) {
+                mQueue.add(task);
+                mPending++;
+                mLock.notify();
+            }
+        }
+
+        private void work() {
+            boolean isInterrupted = false;
+            for (; ; ) {
+                Runnable task;
+                synchronized (mLock) {
+                    while ((task = mQueue.poll()) == null) {
+                        if (mPending == 0) {
+                            if (isInterrupted) Thread.currentThread().interrupt();
+                            return;
+                        }
+                        try {
+                            mLock.wait();
+                        } catch (InterruptedException e) {
+                            // finish the tasks quickly, they are not cancellable one by one
+                            isInterrupted = true;
+                            mToken.cancel();
+                        }
+                    }
+                }
+                try {
+                    task.run();
+                } finally {
+                    synchronized (mLock) {
+                        if (--mPending == 0) mLock.notifyAll();
+                    }
+                }
+            }
+        }
+
+        final class Node {
+            final File dir;
+            final File dest;
+            final Node parent;
+
+            private final AtomicInteger mPending = new AtomicInteger(1);
+
+            Node(final File dir, final File dest, final Node parent) {
+                this.dir = dir;
+                this.dest = dest;
+                this.parent = parent;
+            }
+
+            private void done() {
+                if (mPending.decrementAndGet() != 0) return;
+                onExitDir(this);
+                if (parent != null) parent.done();
+            }
+        }
+
+        private final class ListTask implements Runnable {
+            private final Node mNode;
+
+            ListTask(final Node node) {
+                mNode = node;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    if (mToken.isCancelled()) return;
+                    final File[] files = mNode.dir.listFiles();
+                    if (files == null) {
+                        mFailedCount.incrementAndGet();
+                        return;
+                    }
+                    for (int i = BATCH_SIZE; i < files.length; i += BATCH_SIZE) {
+                        mNode.mPending.incrementAndGet();
+                        post(new BatchTask(mNode, files, i, Math.min(i + BATCH_SIZE, files.length)));
+                    }
+                    visit(mNode, files, 0, Math.min(BATCH_SIZE, files.length));
+                } finally {
+                    // exit the directory even if the filter or onFile throws
+                    mNode.done();
+                }
+            }
+        }
+
+        private final class BatchTask implements Runnable {
+            private final Node   mNode;
+            private final File[] mFiles;
+            private final int    mFrom;
+            private final int    mTo;
+
+            BatchTask(final Node node, final File[] files, final int from, final int to) {
+                mNode = node;
+                mFiles = files;
+                mFrom = from;
+                mTo = to;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    visit(mNode, mFiles, mFrom, mTo);
+                } finally {
+                    mNode.done();
+                }
+            }
+        }
+
+        private void visit(final Node node, final File[] files, final int from, final int to) {
+            for (int i = from; i < to && !mToken.isCancelled(); i++) {
+                final File file = files[i];
+                if (file.isDirectory()) {
+                    final Node child = new Node(file,
+                            node.dest == null ? null : new File(node.dest, file.getName()), node);
+                    if (onEnterDir(child)) {
+                        node.mPending.incrementAndGet();
+                        post(new ListTask(child));
+                    }
+                } else {
+                    onFile(node, file);
+                }
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // directory scanner
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static final class FileIterator implements Iterator<File> {
+        private final FileFilter    mFilter;
+        private final boolean       mIsRecursive;
+        private final Deque<File[]> mFilesStack = new ArrayDeque<>();
+        private final Deque<int[]>  mIndexStack = new ArrayDeque<>();
+        private       File          mPendingDir;// listed when the next file is required
+        private       File          mNext;
+
+        FileIterator(final File dir, final FileFilter filter, final boolean isRecursive) {
+            mFilter = filter;
+            mIsRecursive = isRecursive;
+            mPendingDir = dir;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (mNext == null) {
+                mNext = advance();
+            }
+            return mNext != null;
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            File next = mNext;
+            mNext = null;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        private File advance() {
+            for (; ; ) {
+                if (mPendingDir != null) {
+                    File[] files = mPendingDir.listFiles();
+                    mPendingDir = null;
+                    if (files != null && files.length != 0) {
+                        mFilesStack.push(files);
+                        mIndexStack.push(new int[1]);
+                    }
+                }
+                File[] files = mFilesStack.peek();
+                if (files == null) return null;
+                int[] index = mIndexStack.peek();
+                if (index[0] >= files.length) {
+                    mFilesStack.pop();
+                    mIndexStack.pop();
+                    continue;
+                }
+                File file = files[index[0]++];
+                if (mIsRecursive && file.isDirectory()) {
+                    mPendingDir = file;
+                }
+                if (mFilter.accept(file)) return file;
+            }
+        }
+    }
+
+    /**
+     * The scanner which remembers the length and last modified time of files in directory
+     * and reports the files which are added, changed or removed since the last scan.
+     * <p>The listing of directory whose last modified time doesn't change is reused,
+     * so only the files are stat again, the filter is called when the directory is listed.</p>
+     */
+    public static final class DirScanner {
+
+        private static final int  SNAPSHOT_MAGIC    = 0x44534E31;
+        // the last modified time of some file systems is in seconds
+        private static final long MTIME_GRANULARITY = 2000;
+
+        private final File       mDir;
+        private final FileFilter mFilter;
+
+        private Map<String, long[]>  mFiles = new HashMap<>();// path -> {length, lastModified}
+        private Map<String, DirStat> mDirs  = new HashMap<>();
+        private long                 mLastScanTime;
+
+        public DirScanner(final File dir) {
+            this(dir, null);
+        }
+
+        public DirScanner(final File dir, final FileFilter filter) {
+            mDir = dir;
+            mFilter = filter;
+        }
+
+        /**
+         * Scan the directory.
+         * <p>All of files are reported as added by the first scan.</p>
+         *
+         * @return the changes since the last scan
+         */
+        public synchronized DirChanges scan() {
+            final long scanTime = System.currentTimeMillis();
+            final Map<String, long[]> files = new HashMap<>(Math.max(16, mFiles.size() * 4 / 3 + 1));
+            final Map<String, DirStat> dirs = new HashMap<>(Math.max(16, mDirs.size() * 4 / 3 + 1));
+            final List<File> added = new ArrayList<>();
+            final List<File> changed = new ArrayList<>();
+            final Deque<File> stack = new ArrayDeque<>();
+            if (isDir(mDir)) stack.push(mDir);
+            File dir;
+            while ((dir = stack.poll()) != null) {
+                final String dirPath = dir.getPath();
+                final long dirModified = dir.lastModified();
+                DirStat stat = mDirs.get(dirPath);
+                if (stat == null
+                        || stat.lastModified != dirModified
+                        || dirModified + MTIME_GRANULARITY > mLastScanTime) {
+                    stat = listDir(dir, dirModified);
+                    if (stat == null) continue;
+                }
+                dirs.put(dirPath, stat);
+                for (String name : stat.dirNames) {
+                    stack.push(new File(dir, name));
+                }
+                for (String name : stat.fileNames) {
+                    final File file = new File(dir, name);
+                    final long lastModified = file.lastModified();
+                    // it's removed after listing
+                    if (lastModified == 0 && !file.exists()) continue;
+                    final long length = file.length();
+                    final String path = file.getPath();
+                    final long[] old = mFiles.get(path);
+                    files.put(path, new long[]{length, lastModified});
+                    if (old == null) {
+                        added.add(file);
+                    } else if (old[0] != length || old[1] != lastModified) {
+                        changed.add(file);
+                    }
+                }
+            }
+            final List<File> removed = new ArrayList<>();
+            for (String path : mFiles.keySet()) {
+                if (!files.containsKey(path)) {
+                    removed.add(new File(path));
+                }
+            }
+            mFiles = files;
+            mDirs = dirs;
+            mLastScanTime = scanTime;
+            return new DirChanges(added, changed, removed);
+        }
+
+        /**
+         * Forget the last scan.
+         */
+        public synchronized void reset() {
+            mFiles = new HashMap<>();
+            mDirs = new HashMap<>();
+            mLastScanTime = 0;
+        }
+
+        /**
+         * Save the snapshot of last scan into file, which can be loaded by another process.
+         *
+         * @param file The file.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public synchronized boolean saveSnapshot(final File file) {
+            if (!createFileByDeleteOldFile(file)) return false;
+            DataOutputStream os = null;
+            try {
+                os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                os.writeInt(SNAPSHOT_MAGIC);
+                os.writeUTF(mDir.getPath());
+                os.writeLong(mLastScanTime);
+                os.writeInt(mFiles.size());
+                for (Map.Entry<String, long[]> entry : mFiles.entrySet()) {
+                    os.writeUTF(entry.getKey());
+                    os.writeLong(entry.getValue()[0]);
+                    os.writeLong(entry.getValue()[1]);
+                }
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                try {
+                    if (os != null) {
+                        os.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Load the snapshot of the same directory from file as the last scan.
+         *
+         * @param file The file.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public synchronized boolean loadSnapshot(final File file) {
+            if (!isFile(file)) return false;
+            DataInputStream is = null;
+            try {
+                is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (is.readInt() != SNAPSHOT_MAGIC) return false;
+                if (!mDir.getPath().equals(is.readUTF())) return false;
+                final long lastScanTime = is.readLong();
+                final int size = is.readInt();
+                final Map<String, long[]> files = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+                for (int i = 0; i < size; i++) {
+                    files.put(is.readUTF(), new long[]{is.readLong(), is.readLong()});
+                }
+                mFiles = files;
+                // the directories are listed again by next scan
+                mDirs = new HashMap<>();
+                mLastScanTime = lastScanTime;
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                try {
+                    if (is != null) {
+                        is.close();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private DirStat listDir(final File dir, final long lastModified) {
+            final File[] children = dir.listFiles();
+            if (children == null) return null;
+            final List<String> dirNames = new ArrayList<>();
+            final List<String> fileNames = new ArrayList<>(children.length);
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    dirNames.add(child.getName());
+                } else if (mFilter == null || mFilter.accept(child)) {
+                    fileNames.add(child.getName());
+                }
+            }
+            return new DirStat(lastModified,
+                    dirNames.toArray(new String[dirNames.size()]),
+                    fileNames.toArray(new String[fileNames.size()]));
+        }
+
+        private static final class DirStat {
+            final long     lastModified;
+            final String[] dirNames;
+            final String[] fileNames;
+
+            DirStat(final long lastModified, final String[] dirNames, final String[] fileNames) {
+                this.lastModified = lastModified;
+                this.dirNames = dirNames;
+                this.fileNames = fileNames;
+            }
+        }
+    }
+
+    public static final class DirChanges {
+        private final List<File> mAdded;
+        private final List<File> mChanged;
+        private final List<File> mRemoved;
+
+        DirChanges(final List<File> added, final List<File> changed, final List<File> removed) {
+            mAdded = added;
+            mChanged = changed;
+            mRemoved = removed;
+        }
+
+        /**
+         * Return the files which are added since the last scan.
+         */
+        public List<File> getAdded() {
+            return mAdded;
+        }
+
+        /**
+         * Return the files whose length or last modified time changed since the last scan.
+         */
+        public List<File> getChanged() {
+            return mChanged;
+        }
+
+        /**
+         * Return the files which are removed since the last scan.
+         */
+        public List<File> getRemoved() {
+            return mRemoved;
+        }
+
+        /**
+         * Return whether nothing changed since the last scan.
+         */
+        public boolean isEmpty() {
+            return mAdded.isEmpty() && mChanged.isEmpty() && mRemoved.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added: " + mAdded.size() + ", changed: " + mChanged.size()
+                    + ", removed: " + mRemoved.size();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // interface
     ///////////////////////////////////////////////////////////////////////////
@@ -1192,6 +2155,17 @@ public final class FileUtils {
         boolean onReplace();
     }
 
+    public interface OnProgressListener {
+        /**
+         * Called after each chunk is copied.
+         *
+         * @param current The count of copied bytes.
+         * @param total   The count of total bytes.
+         * @return {@code true}: continue<br>{@code false}: cancel
+         */
+        boolean onProgress(long current, long total);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // other utils methods
     ///////////////////////////////////////////////////////////////////////////
@@ -1234,34 +2208,4 @@ public final class FileUtils {
         }
         return true;
     }
-
-    private static boolean writeFileFromIS(final File file,
-                                           final InputStream is) {
-        OutputStream os = null;
-        try {
-            os = new BufferedOutputStream(new FileOutputStream(file));
-            byte data[] = new byte[8192];
-            int len;
-            while ((len = is.read(data, 0, 8192)) != -1) {
-                os.write(data, 0, len);
-            }
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            try {
-                if (os != null) {
-                    os.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-    }
 }
@@ -21,36 +21,63 @@ import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.Formatter;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -77,6 +104,22 @@ public final class LogUtils {
     public @interface TYPE {
     }
 
+    public static final int OVERFLOW_DROP_OLDEST = 0;
+    public static final int OVERFLOW_BLOCK       = 1;
+
+    @IntDef({OVERFLOW_DROP_OLDEST, OVERFLOW_BLOCK})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface OVERFLOW {
+    }
+
+    public static final int FORMAT_TEXT   = 0;
+    public static final int FORMAT_BINARY = 1;
+
+    @IntDef({FORMAT_TEXT, FORMAT_BINARY})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface FORMAT {
+    }
+
     private static final char[] T = new char[]{'V', 'D', 'I', 'W', 'E', 'A'};
 
     private static final int FILE = 0x10;
@@ -99,18 +142,41 @@ public final class LogUtils {
     private static final int    MAX_LEN        = 3000;
     private static final String NOTHING        = "log nothing";
     private static final String NULL           = "null";
+    private static final String TRUNCATED      = "...(truncated)";
     private static final String ARGS           = "args";
     private static final String PLACEHOLDER    = " ";
+    private static final String TEXT_SUFFIX    = ".txt";
+    private static final String BINARY_SUFFIX  = ".bin";
+    private static final String GZIP_SUFFIX    = ".gz";
     private static final Config CONFIG         = new Config();
     private static final Gson   GSON           = new GsonBuilder()
             .setPrettyPrinting().serializeNulls().create();
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private static final ThreadLocal<SimpleDateFormat> SDF_THREAD_LOCAL = new ThreadLocal<>();
 
+    private static final ThreadLocal<Transformer> TRANSFORMER_THREAD_LOCAL = new ThreadLocal<>();
+
     private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
 
+    private static Pattern sLogPattern;// Used on the thread of EXECUTOR only.
+
+    private static final FileAppender FILE_APPENDER = new FileAppender();
+
+    private static final BinaryEncoder BINARY_ENCODER = new BinaryEncoder();
+
+    private static volatile SinkWorker   sFileWorker;
+    private static volatile SinkWorker[] sSinkWorkers = new SinkWorker[0];
+    private static volatile LogRing      sRing;
+    private static volatile String       sLastRingLogs = "";
+    private static          boolean      sIsLastRingRead;// Guarded by LogRing.class.
+
     private static final SimpleArrayMap<Class, IFormatter> I_FORMATTER_MAP = new SimpleArrayMap<>();
 
+    private static final int                            MAX_CALLER_CACHE_SIZE = 512;
+    private static final Map<StackTraceElement, Caller> CALLER_CACHE          = new ConcurrentHashMap<>();
+
     private LogUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
@@ -215,18 +281,59 @@ public final class LogUtils {
         log(XML | type, tag, content);
     }
 
+    /**
+     * Return whether the log of type will be printed to console or file,
+     * which is useful to skip building the contents of log.
+     *
+     * @param type The type of log.
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public static boolean isLoggable(@TYPE final int type) {
+        if (!CONFIG.isLogSwitch()) return false;
+        return (CONFIG.isLog2ConsoleSwitch() && type >= CONFIG.mConsoleFilter)
+                || (CONFIG.isLog2FileSwitch() && type >= CONFIG.mFileFilter)
+                || isLog2Sinks(sSinkWorkers, type)
+                || (CONFIG.getRingCapacity() > 0 && type >= CONFIG.mRingFilter);
+    }
+
+    private static boolean isLog2Sinks(final SinkWorker[] workers, final int type) {
+        for (SinkWorker worker : workers) {
+            if (type >= worker.mSink.mFilter) return true;
+        }
+        return false;
+    }
+
     public static void log(final int type, final String tag, final Object... contents) {
         if (!CONFIG.isLogSwitch()) return;
         int type_low = type & 0x0f, type_high = type & 0xf0;
-        if (CONFIG.isLog2ConsoleSwitch() || CONFIG.isLog2FileSwitch() || type_high == FILE) {
-            if (type_low < CONFIG.mConsoleFilter && type_low < CONFIG.mFileFilter) return;
-            final TagHead tagHead = processTagAndHead(tag);
-            final String body = processBody(type_high, contents);
-            if (CONFIG.isLog2ConsoleSwitch() && type_high != FILE && type_low >= CONFIG.mConsoleFilter) {
-                print2Console(type_low, tagHead.tag, tagHead.consoleHead, body);
+        final boolean isLog2Console = CONFIG.isLog2ConsoleSwitch()
+                && type_high != FILE && type_low >= CONFIG.mConsoleFilter;
+        final boolean isLog2File = (CONFIG.isLog2FileSwitch() || type_high == FILE)
+                && type_low >= CONFIG.mFileFilter;
+        final SinkWorker[] sinkWorkers = sSinkWorkers;
+        final boolean isLog2Sinks = isLog2Sinks(sinkWorkers, type_low);
+        final LogRing ring = type_low >= CONFIG.mRingFilter ? getRing() : null;
+        // Check the filters before formatting anything.
+        if (!isLog2Console && !isLog2File && !isLog2Sinks && ring == null) return;
+        final TagHead tagHead = processTagAndHead(tag);
+        final String body = processBody(type_high, contents);
+        final long millis = System.currentTimeMillis();
+        if (ring != null) {
+            ring.write(millis, type_low, tagHead.tag, tagHead.fileHead, body);
+        }
+        if (isLog2Console) {
+            print2Console(type_low, tagHead.tag, tagHead.consoleHead, body);
+        }
+        if (isLog2File || isLog2Sinks) {
+            final LogRecord record = new LogRecord(millis,
+                    type_low, tagHead.tag, tagHead.fileHead, body);
+            if (isLog2File) {
+                print2File(record);
             }
-            if ((CONFIG.isLog2FileSwitch() || type_high == FILE) && type_low >= CONFIG.mFileFilter) {
-                print2File(type_low, tagHead.tag, tagHead.fileHead + body);
+            for (SinkWorker worker : sinkWorkers) {
+                if (type_low >= worker.mSink.mFilter) {
+                    worker.enqueue(record);
+                }
             }
         }
     }
@@ -235,33 +342,22 @@ public final class LogUtils {
         if (!CONFIG.mTagIsSpace && !CONFIG.isLogHeadSwitch()) {
             tag = CONFIG.getGlobalTag();
         } else {
+            // Android has no API to walk part of stack, so capture it once and cache the callers.
             final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
             final int stackIndex = 3 + CONFIG.getStackOffset();
             if (stackIndex >= stackTrace.length) {
-                StackTraceElement targetElement = stackTrace[3];
-                final String fileName = getFileName(targetElement);
                 if (CONFIG.mTagIsSpace && isSpace(tag)) {
-                    int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                    tag = index == -1 ? fileName : fileName.substring(0, index);
+                    tag = getCaller(stackTrace[3]).tag;
                 }
                 return new TagHead(tag, null, ": ");
             }
-            StackTraceElement targetElement = stackTrace[stackIndex];
-            final String fileName = getFileName(targetElement);
+            final Caller caller = getCaller(stackTrace[stackIndex]);
             if (CONFIG.mTagIsSpace && isSpace(tag)) {
-                int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                tag = index == -1 ? fileName : fileName.substring(0, index);
+                tag = caller.tag;
             }
             if (CONFIG.isLogHeadSwitch()) {
                 String tName = Thread.currentThread().getName();
-                final String head = new Formatter()
-                        .format("%s, %s.%s(%s:%d)",
-                                tName,
-                                targetElement.getClassName(),
-                                targetElement.getMethodName(),
-                                fileName,
-                                targetElement.getLineNumber())
-                        .toString();
+                final String head = tName + ", " + caller.location;
                 final String fileHead = " [" + head + "]: ";
                 if (CONFIG.getStackDeep() <= 1) {
                     return new TagHead(tag, new String[]{head}, fileHead);
@@ -272,17 +368,13 @@ public final class LogUtils {
                                     stackTrace.length - stackIndex
                             )];
                     consoleHead[0] = head;
-                    int spaceLen = tName.length() + 2;
-                    String space = new Formatter().format("%" + spaceLen + "s", "").toString();
+                    final char[] space = new char[tName.length() + 2];
+                    Arrays.fill(space, ' ');
+                    final StringBuilder sb = new StringBuilder();
                     for (int i = 1, len = consoleHead.length; i < len; ++i) {
-                        targetElement = stackTrace[i + stackIndex];
-                        consoleHead[i] = new Formatter()
-                                .format("%s%s.%s(%s:%d)",
-                                        space,
-                                        targetElement.getClassName(),
-                                        targetElement.getMethodName(),
-                                        getFileName(targetElement),
-                                        targetElement.getLineNumber())
+                        sb.setLength(0);
+                        consoleHead[i] = sb.append(space)
+                                .append(getCaller(stackTrace[i + stackIndex]).location)
                                 .toString();
                     }
                     return new TagHead(tag, consoleHead, fileHead);
@@ -292,6 +384,31 @@ public final class LogUtils {
         return new TagHead(tag, null, ": ");
     }
 
+    private static Caller getCaller(final StackTraceElement element) {
+        Caller caller = CALLER_CACHE.get(element);
+        if (caller == null) {
+            final String fileName = getFileName(element);
+            int index = fileName.indexOf('.');// Use proguard may not find '.'.
+            final String tag = index == -1 ? fileName : fileName.substring(0, index);
+            final String location = new StringBuilder()
+                    .append(element.getClassName())
+                    .append('.')
+                    .append(element.getMethodName())
+                    .append('(')
+                    .append(fileName)
+                    .append(':')
+                    .append(element.getLineNumber())
+                    .append(')')
+                    .toString();
+            caller = new Caller(tag, location);
+            if (CALLER_CACHE.size() >= MAX_CALLER_CACHE_SIZE) {
+                CALLER_CACHE.clear();
+            }
+            CALLER_CACHE.put(element, caller);
+        }
+        return caller;
+    }
+
     private static String getFileName(final StackTraceElement targetElement) {
         String fileName = targetElement.getFileName();
         if (fileName != null) return fileName;
@@ -333,6 +450,7 @@ public final class LogUtils {
     }
 
     private static String formatObject(int type, Object object) {
+        if (object instanceof ISupplier) object = ((ISupplier) object).get();
         if (object == null) return NULL;
         if (type == JSON) return LogFormatter.object2Json(object);
         if (type == XML) return LogFormatter.formatXml(object.toString());
@@ -340,6 +458,7 @@ public final class LogUtils {
     }
 
     private static String formatObject(Object object) {
+        if (object instanceof ISupplier) object = ((ISupplier) object).get();
         if (object == null) return NULL;
         if (!I_FORMATTER_MAP.isEmpty()) {
             IFormatter iFormatter = I_FORMATTER_MAP.get(getClassFromObject(object));
@@ -472,26 +591,102 @@ public final class LogUtils {
         }
     }
 
-    private static void print2File(final int type, final String tag, final String msg) {
-        Date now = new Date(System.currentTimeMillis());
-        String format = getSdf().format(now);
+    private static void print2File(final LogRecord record) {
+        getFileWorker().enqueue(record);
+    }
+
+    /**
+     * Return the statistics of the queue which buffers the logs to file.
+     *
+     * @return the statistics of the queue
+     */
+    public static QueueStats getFileQueueStats() {
+        SinkWorker worker = sFileWorker;
+        if (worker == null) return new QueueStats(0, 0, 0);
+        return worker.mQueue.getStats();
+    }
+
+    /**
+     * Return the last logs kept in ring, which is enabled by {@link Config#setRingCapacity(int)}.
+     *
+     * @return the last logs
+     */
+    public static String getRingLogs() {
+        final LogRing ring = sRing;
+        return ring == null ? "" : ring.dump();
+    }
+
+    /**
+     * Return the last logs kept in ring by the last process, which needs
+     * {@link Config#setRingMmapSwitch(boolean)}, so they survive the native crash.
+     *
+     * @return the last logs of last process
+     */
+    public static String getLastRingLogs() {
+        getRing();
+        return sLastRingLogs;
+    }
+
+    private static LogRing getRing() {
+        final int capacity = CONFIG.getRingCapacity();
+        if (capacity <= 0) return null;
+        LogRing ring = sRing;
+        if (ring == null || ring.mCapacity != capacity || ring.mMmapSwitch != CONFIG.isRingMmapSwitch()) {
+            synchronized (LogRing.class) {
+                ring = sRing;
+                if (ring == null || ring.mCapacity != capacity || ring.mMmapSwitch != CONFIG.isRingMmapSwitch()) {
+                    ring = new LogRing(capacity, CONFIG.isRingMmapSwitch());
+                    sRing = ring;
+                }
+            }
+        }
+        return ring;
+    }
+
+    private static SinkWorker getFileWorker() {
+        SinkWorker worker = sFileWorker;
+        if (worker == null) {
+            synchronized (LogUtils.class) {
+                worker = sFileWorker;
+                if (worker == null) {
+                    worker = new SinkWorker("LogUtils-file", new FileSink(),
+                            CONFIG.getFileQueueCapacity(), CONFIG.getFileQueueOverflow());
+                    worker.start();
+                    sFileWorker = worker;
+                }
+            }
+        }
+        return worker;
+    }
+
+    private static void write2File(final LogRecord record, final StringBuilder sb) {
+        String format = getSdf().format(new Date(record.time));
         String date = format.substring(0, 10);
         String time = format.substring(11);
-        final String fullPath =
-                CONFIG.getDir() + CONFIG.getFilePrefix() + "-" + date + "-" + CONFIG.getProcessName() + ".txt";
+        final boolean isBinary = CONFIG.getFileFormat() == FORMAT_BINARY;
+        final String fullPath = CONFIG.getDir() + CONFIG.getFilePrefix() + "-" + date + "-"
+                + CONFIG.getProcessName() + (isBinary ? BINARY_SUFFIX : TEXT_SUFFIX);
+        if (CONFIG.getFileMaxSize() > 0
+                && FILE_APPENDER.getFileSize(fullPath) >= CONFIG.getFileMaxSize()) {
+            rotateFile(fullPath);
+        }
         if (!createOrExistsFile(fullPath)) {
             Log.e("LogUtils", "create " + fullPath + " failed!");
             return;
         }
-        StringBuilder sb = new StringBuilder();
+        if (isBinary) {
+            BINARY_ENCODER.encode(fullPath, record);
+            return;
+        }
+        sb.setLength(0);
         sb.append(time)
-                .append(T[type - V])
+                .append(T[record.type - V])
                 .append("/")
-                .append(tag)
-                .append(msg)
+                .append(record.tag)
+                .append(record.head)
+                .append(record.msg)
                 .append(LINE_SEP);
-        final String content = sb.toString();
-        input2File(content, fullPath);
+        FILE_APPENDER.append(fullPath, sb.toString());
     }
 
     private static SimpleDateFormat getSdf() {
@@ -511,6 +706,9 @@ public final class LogUtils {
             deleteDueLogs(filePath);
             boolean isCreate = file.createNewFile();
             if (isCreate) {
+                // The file may have been deleted while it is open, so drop the stale channel.
+                BINARY_ENCODER.reset();
+                FILE_APPENDER.close();
                 printDeviceInfo(filePath);
             }
             return isCreate;
@@ -520,43 +718,185 @@ public final class LogUtils {
         }
     }
 
-    private static void deleteDueLogs(String filePath) {
-        if (CONFIG.getSaveDays() <= 0) return;
-        File file = new File(filePath);
-        File parentFile = file.getParentFile();
-        File[] files = parentFile.listFiles(new FilenameFilter() {
+    /**
+     * Rename the full file to the next segment, such as {@code util-2019-01-01-process.1.txt},
+     * and gzip the segment in background.
+     */
+    private static void rotateFile(final String filePath) {
+        BINARY_ENCODER.reset();
+        FILE_APPENDER.close();
+        final File file = new File(filePath);
+        final String name = file.getName();
+        final int dot = name.lastIndexOf('.');
+        final String base = name.substring(0, dot + 1);
+        final String suffix = name.substring(dot);
+        // Follow the last segment, since the oldest segments may have been deleted.
+        int index = 0;
+        final String[] names = file.getParentFile().list();
+        if (names != null) {
+            for (String aName : names) {
+                if (!aName.startsWith(base)) continue;
+                final int end = aName.indexOf('.', base.length());
+                if (end <= base.length()) continue;
+                try {
+                    index = Math.max(index, Integer.parseInt(aName.substring(base.length(), end)));
+                } catch (NumberFormatException ignore) {
+                }
+            }
+        }
+        final File segment = new File(file.getParent(), base + (index + 1) + suffix);
+        if (!file.renameTo(segment)) {
+            Log.e("LogUtils", "rename " + filePath + " failed!");
+            return;
+        }
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                gzipFile(segment);
+            }
+        });
+    }
+
+    private static void gzipFile(final File file) {
+        final File gzFile = new File(file.getPath() + GZIP_SUFFIX);
+        InputStream is = null;
+        OutputStream os = null;
+        boolean isSuccess = false;
+        final byte[] buffer = Utils.BytePool.obtain(8192);
+        try {
+            is = new FileInputStream(file);
+            os = new GZIPOutputStream(new FileOutputStream(gzFile), 8192);
+            int len;
+            while ((len = is.read(buffer, 0, 8192)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            os.close();
+            os = null;
+            isSuccess = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            Utils.BytePool.recycle(buffer);
+            try {
+                if (is != null) {
+                    is.close();
+                }
+                if (os != null) {
+                    os.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (!(isSuccess ? file : gzFile).delete()) {
+            Log.e("LogUtils", "delete " + (isSuccess ? file : gzFile) + " failed!");
+        }
+    }
+
+    private static void deleteDueLogs(final String filePath) {
+        if (CONFIG.getSaveDays() <= 0 && CONFIG.getDirMaxSize() <= 0) return;
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                deleteLogs(new File(filePath));
+            }
+        });
+    }
+
+    /**
+     * Delete the logs which are due, then delete the oldest logs until their total size
+     * is in the budget. Called on the thread of {@link #EXECUTOR} only.
+     *
+     * @param curFile The current file, which is never deleted.
+     */
+    private static void deleteLogs(final File curFile) {
+        final Pattern pattern = getLogPattern();
+        File[] files = curFile.getParentFile().listFiles(new FilenameFilter() {
             @Override
             public boolean accept(File dir, String name) {
-                return name.matches("^" + CONFIG.getFilePrefix() + "-[0-9]{4}-[0-9]{2}-[0-9]{2}-" + CONFIG.getProcessName() + ".txt$");
+                return pattern.matcher(name).matches();
             }
         });
         if (files == null || files.length <= 0) return;
-        final int length = filePath.length();
-        final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        try {
-            String curDay = filePath.substring(length - 14, length - 4);
-            long dueMillis = sdf.parse(curDay).getTime() - CONFIG.getSaveDays() * 86400000L;
-            for (final File aFile : files) {
-                String name = aFile.getName();
-                int l = name.length();
-                String logDay = name.substring(l - 14, l - 4);
-                if (sdf.parse(logDay).getTime() <= dueMillis) {
-                    EXECUTOR.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            boolean delete = aFile.delete();
-                            if (!delete) {
-                                Log.e("LogUtils", "delete " + aFile + " failed!");
-                            }
+        final List<File> logs = new ArrayList<>(files.length);
+        final Matcher curMatcher = pattern.matcher(curFile.getName());
+        if (!curMatcher.matches()) return;
+        if (CONFIG.getSaveDays() > 0) {
+            final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+            try {
+                String curDay = curMatcher.group(1);
+                long dueMillis = sdf.parse(curDay).getTime() - CONFIG.getSaveDays() * 86400000L;
+                for (final File aFile : files) {
+                    Matcher matcher = pattern.matcher(aFile.getName());
+                    if (matcher.matches() && sdf.parse(matcher.group(1)).getTime() <= dueMillis) {
+                        if (!aFile.delete()) {
+                            Log.e("LogUtils", "delete " + aFile + " failed!");
                         }
-                    });
+                    } else {
+                        logs.add(aFile);
+                    }
                 }
+            } catch (ParseException e) {
+                e.printStackTrace();
+                return;
             }
-        } catch (ParseException e) {
-            e.printStackTrace();
+        } else {
+            logs.addAll(Arrays.asList(files));
+        }
+        final long maxSize = CONFIG.getDirMaxSize();
+        if (maxSize <= 0) return;
+        final long[] ages = new long[logs.size()];
+        long totalSize = 0;
+        for (int i = 0; i < ages.length; i++) {
+            final File aFile = logs.get(i);
+            final Matcher matcher = pattern.matcher(aFile.getName());
+            if (!matcher.matches()) continue;
+            // The day and the index of segment, the current file is the newest of its day.
+            final String segment = matcher.group(2);
+            ages[i] = Long.parseLong(matcher.group(1).replace("-", "")) << 32
+                    | (segment == null ? Integer.MAX_VALUE : Integer.parseInt(segment.substring(1)));
+            totalSize += aFile.length();
+        }
+        if (totalSize <= maxSize) return;
+        files = logs.toArray(new File[0]);
+        sortByAge(files, ages);
+        for (File aFile : files) {
+            if (totalSize <= maxSize) break;
+            if (aFile.equals(curFile)) continue;
+            final long size = aFile.length();
+            if (aFile.delete()) {
+                totalSize -= size;
+            } else {
+                Log.e("LogUtils", "delete " + aFile + " failed!");
+            }
+        }
+    }
+
+    private static void sortByAge(final File[] files, final long[] ages) {
+        for (int i = 1; i < files.length; i++) {
+            final File file = files[i];
+            final long age = ages[i];
+            int j = i - 1;
+            while (j >= 0 && ages[j] > age) {
+                files[j + 1] = files[j];
+                ages[j + 1] = ages[j];
+                j--;
+            }
+            files[j + 1] = file;
+            ages[j + 1] = age;
         }
     }
 
+    private static Pattern getLogPattern() {
+        final String regex = "^" + Pattern.quote(CONFIG.getFilePrefix())
+                + "-([0-9]{4}-[0-9]{2}-[0-9]{2})-" + Pattern.quote(CONFIG.getProcessName())
+                + "(\\.[0-9]+)?\\.(txt|bin)(\\.gz)?$";
+        if (sLogPattern == null || !sLogPattern.pattern().equals(regex)) {
+            sLogPattern = Pattern.compile(regex);
+        }
+        return sLogPattern;
+    }
+
     private static void printDeviceInfo(final String filePath) {
         String versionName = "";
         int versionCode = 0;
@@ -571,7 +911,8 @@ public final class LogUtils {
         } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
         }
-        String time = filePath.substring(filePath.length() - 14, filePath.length() - 4);
+        final int start = filePath.lastIndexOf(File.separatorChar) + CONFIG.getFilePrefix().length() + 2;
+        String time = filePath.substring(start, start + 10);
         final String head = "************* Log Head ****************" +
                 "\nDate of Log        : " + time +
                 "\nDevice Manufacturer: " + Build.MANUFACTURER +
@@ -581,7 +922,11 @@ public final class LogUtils {
                 "\nApp VersionName    : " + versionName +
                 "\nApp VersionCode    : " + versionCode +
                 "\n************* Log Head ****************\n\n";
-        input2File(head, filePath);
+        if (filePath.endsWith(BINARY_SUFFIX)) {
+            BINARY_ENCODER.encodeText(filePath, head);
+        } else {
+            FILE_APPENDER.append(filePath, head);
+        }
     }
 
     private static boolean createOrExistsDir(final File file) {
@@ -598,30 +943,6 @@ public final class LogUtils {
         return true;
     }
 
-    private static void input2File(final String input, final String filePath) {
-        EXECUTOR.execute(new Runnable() {
-            @Override
-            public void run() {
-                BufferedWriter bw = null;
-                try {
-                    bw = new BufferedWriter(new FileWriter(filePath, true));
-                    bw.write(input);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    Log.e("LogUtils", "log to " + filePath + " failed!");
-                } finally {
-                    try {
-                        if (bw != null) {
-                            bw.close();
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        });
-    }
-
     public static class Config {
         private String  mDefaultDir;// The default storage directory of log.
         private String  mDir;       // The storage directory of log.
@@ -639,6 +960,18 @@ public final class LogUtils {
         private int     mStackDeep         = 1;     // The stack's deep of log.
         private int     mStackOffset       = 0;     // The stack's offset of log.
         private int     mSaveDays          = -1;    // The save days of log.
+        private long    mFileMaxSize       = 0;     // The max size of log file.
+        private long    mDirMaxSize        = 0;     // The max total size of log files.
+        private int     mFileCacheSize     = 128 * 1024;// The size of mmap cache of file.
+        private int     mFileFlushInterval = 3000;  // The interval of flushing cache to file.
+        private int     mFileQueueCapacity = 1024;  // The capacity of queue of file.
+        private int     mFileQueueOverflow = OVERFLOW_BLOCK;// The overflow policy of queue of file.
+        private int     mFileFormat        = FORMAT_TEXT;// The format of file.
+        private boolean mFileDeflateSwitch = false; // The deflate's switch of binary file.
+        private int     mFormatMaxLength   = 64 * 1024;// The max length of formatted json or xml.
+        private int     mRingCapacity      = 0;     // The count of last logs kept in ring.
+        private int     mRingFilter        = V;     // The ring's filter of log.
+        private boolean mRingMmapSwitch    = false; // The mmap's switch of ring.
         private String  mProcessName       = getCurrentProcessName();
 
         private Config() {
@@ -740,6 +1073,158 @@ public final class LogUtils {
             return this;
         }
 
+        /**
+         * Set the max size of log file, the full file is renamed to the next segment,
+         * such as {@code util-2019-01-01-process.1.txt}, and gzipped in background.
+         * Set 0 to never rotate.
+         *
+         * @param fileMaxSize The max size of log file in bytes.
+         * @return the config
+         */
+        public Config setFileMaxSize(@IntRange(from = 0) final long fileMaxSize) {
+            mFileMaxSize = fileMaxSize;
+            return this;
+        }
+
+        /**
+         * Set the max total size of log files, the oldest files are deleted when it is exceeded.
+         * Set 0 to never delete by size.
+         *
+         * @param dirMaxSize The max total size of log files in bytes.
+         * @return the config
+         */
+        public Config setDirMaxSize(@IntRange(from = 0) final long dirMaxSize) {
+            mDirMaxSize = dirMaxSize;
+            return this;
+        }
+
+        /**
+         * Set the size of cache which is mapped to memory before the log is written to file,
+         * so it survives the death of process. Set 0 to write file directly.
+         *
+         * @param fileCacheSize The size of cache in bytes.
+         * @return the config
+         */
+        public Config setFileCacheSize(@IntRange(from = 0) final int fileCacheSize) {
+            mFileCacheSize = fileCacheSize;
+            return this;
+        }
+
+        /**
+         * Set the max interval of flushing the cache to file.
+         *
+         * @param fileFlushInterval The interval in milliseconds.
+         * @return the config
+         */
+        public Config setFileFlushInterval(@IntRange(from = 0) final int fileFlushInterval) {
+            mFileFlushInterval = fileFlushInterval;
+            return this;
+        }
+
+        /**
+         * Set the capacity of queue which buffers the logs to file.
+         * <p>It takes effect before the first log to file only.</p>
+         *
+         * @param fileQueueCapacity The capacity of queue.
+         * @return the config
+         */
+        public Config setFileQueueCapacity(@IntRange(from = 1) final int fileQueueCapacity) {
+            mFileQueueCapacity = fileQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Set the policy when the queue which buffers the logs to file is full.
+         * <p>It takes effect before the first log to file only.</p>
+         *
+         * @param fileQueueOverflow The overflow policy.
+         *                          <ul>
+         *                          <li>{@link LogUtils#OVERFLOW_DROP_OLDEST}</li>
+         *                          <li>{@link LogUtils#OVERFLOW_BLOCK}</li>
+         *                          </ul>
+         * @return the config
+         */
+        public Config setFileQueueOverflow(@OVERFLOW final int fileQueueOverflow) {
+            mFileQueueOverflow = fileQueueOverflow;
+            return this;
+        }
+
+        /**
+         * Set the format of file.
+         * <p>The binary file is much smaller, use {@link LogDecoder} to decode it to text.</p>
+         *
+         * @param fileFormat The format of file.
+         *                   <ul>
+         *                   <li>{@link LogUtils#FORMAT_TEXT}</li>
+         *                   <li>{@link LogUtils#FORMAT_BINARY}</li>
+         *                   </ul>
+         * @return the config
+         */
+        public Config setFileFormat(@FORMAT final int fileFormat) {
+            mFileFormat = fileFormat;
+            return this;
+        }
+
+        /**
+         * Set the switch of deflating the blocks of binary file.
+         * <p>The records are deflated by block of 32KB, or when the flush interval expires.</p>
+         *
+         * @param fileDeflateSwitch True to deflate, false otherwise.
+         * @return the config
+         */
+        public Config setFileDeflateSwitch(final boolean fileDeflateSwitch) {
+            mFileDeflateSwitch = fileDeflateSwitch;
+            return this;
+        }
+
+        /**
+         * Set the max length of formatted json or xml, the rest is truncated.
+         * Set 0 to never truncate.
+         *
+         * @param formatMaxLength The max length of formatted json or xml.
+         * @return the config
+         */
+        public Config setFormatMaxLength(@IntRange(from = 0) final int formatMaxLength) {
+            mFormatMaxLength = formatMaxLength;
+            return this;
+        }
+
+        /**
+         * Set the count of last logs kept in the ring of memory, which is dumped to the crash file
+         * by {@link CrashUtils}. Set 0 to disable the ring.
+         * <p>Each log is truncated to about 1KB in ring.</p>
+         *
+         * @param ringCapacity The count of last logs kept in ring.
+         * @return the config
+         */
+        public Config setRingCapacity(@IntRange(from = 0) final int ringCapacity) {
+            mRingCapacity = ringCapacity;
+            return this;
+        }
+
+        /**
+         * Set the filter of ring, the logs whose level is lower than it are not kept in ring.
+         *
+         * @param ringFilter The filter of ring.
+         * @return the config
+         */
+        public Config setRingFilter(@TYPE final int ringFilter) {
+            mRingFilter = ringFilter;
+            return this;
+        }
+
+        /**
+         * Set the switch of mapping the ring to file, so the last logs survive the native crash
+         * and can be got by {@link LogUtils#getLastRingLogs()} in the next process.
+         *
+         * @param ringMmapSwitch True to map the ring to file, false otherwise.
+         * @return the config
+         */
+        public Config setRingMmapSwitch(final boolean ringMmapSwitch) {
+            mRingMmapSwitch = ringMmapSwitch;
+            return this;
+        }
+
         public final <T> Config addFormatter(final IFormatter<T> iFormatter) {
             if (iFormatter != null) {
                 I_FORMATTER_MAP.put(getTypeClassFromParadigm(iFormatter), iFormatter);
@@ -747,6 +1232,51 @@ public final class LogUtils {
             return this;
         }
 
+        /**
+         * Add the sink, which receives the logs on its own thread.
+         * <p>The capacity and overflow of its queue are applied when it is added.</p>
+         *
+         * @param sink The sink.
+         * @return the config
+         */
+        public final Config addSink(final ISink sink) {
+            if (sink == null) return this;
+            synchronized (LogUtils.class) {
+                if (sink.mWorker != null) return this;
+                final SinkWorker worker = new SinkWorker("LogUtils-sink", sink,
+                        sink.mQueueCapacity, sink.mQueueOverflow);
+                worker.start();
+                sink.mWorker = worker;
+                final SinkWorker[] workers = Arrays.copyOf(sSinkWorkers, sSinkWorkers.length + 1);
+                workers[workers.length - 1] = worker;
+                sSinkWorkers = workers;
+            }
+            return this;
+        }
+
+        /**
+         * Remove the sink, whose queued logs will be written before its thread quits.
+         *
+         * @param sink The sink.
+         * @return the config
+         */
+        public final Config removeSink(final ISink sink) {
+            if (sink == null) return this;
+            synchronized (LogUtils.class) {
+                final SinkWorker worker = sink.mWorker;
+                if (worker == null) return this;
+                final SinkWorker[] workers = new SinkWorker[sSinkWorkers.length - 1];
+                int i = 0;
+                for (SinkWorker w : sSinkWorkers) {
+                    if (w != worker) workers[i++] = w;
+                }
+                sSinkWorkers = workers;
+                sink.mWorker = null;
+                worker.quit();
+            }
+            return this;
+        }
+
         public String getProcessName() {
             return mProcessName;
         }
@@ -812,6 +1342,54 @@ public final class LogUtils {
             return mSaveDays;
         }
 
+        public long getFileMaxSize() {
+            return mFileMaxSize;
+        }
+
+        public long getDirMaxSize() {
+            return mDirMaxSize;
+        }
+
+        public int getFileCacheSize() {
+            return mFileCacheSize;
+        }
+
+        public int getFileFlushInterval() {
+            return mFileFlushInterval;
+        }
+
+        public int getFileQueueCapacity() {
+            return mFileQueueCapacity;
+        }
+
+        public int getFileQueueOverflow() {
+            return mFileQueueOverflow;
+        }
+
+        public int getFileFormat() {
+            return mFileFormat;
+        }
+
+        public boolean isFileDeflateSwitch() {
+            return mFileDeflateSwitch;
+        }
+
+        public int getFormatMaxLength() {
+            return mFormatMaxLength;
+        }
+
+        public int getRingCapacity() {
+            return mRingCapacity;
+        }
+
+        public char getRingFilter() {
+            return T[mRingFilter - V];
+        }
+
+        public boolean isRingMmapSwitch() {
+            return mRingMmapSwitch;
+        }
+
         private static String getCurrentProcessName() {
             ActivityManager am = (ActivityManager) Utils.getApp().getSystemService(Context.ACTIVITY_SERVICE);
             if (am == null) return "";
@@ -845,7 +1423,20 @@ public final class LogUtils {
                     + LINE_SEP + "stackDeep: " + getStackDeep()
                     + LINE_SEP + "stackOffset: " + getStackOffset()
                     + LINE_SEP + "saveDays: " + getSaveDays()
-                    + LINE_SEP + "formatter: " + I_FORMATTER_MAP;
+                    + LINE_SEP + "fileMaxSize: " + getFileMaxSize()
+                    + LINE_SEP + "dirMaxSize: " + getDirMaxSize()
+                    + LINE_SEP + "fileCacheSize: " + getFileCacheSize()
+                    + LINE_SEP + "fileFlushInterval: " + getFileFlushInterval()
+                    + LINE_SEP + "fileQueueCapacity: " + getFileQueueCapacity()
+                    + LINE_SEP + "fileQueueOverflow: " + getFileQueueOverflow()
+                    + LINE_SEP + "fileFormat: " + getFileFormat()
+                    + LINE_SEP + "fileDeflate: " + isFileDeflateSwitch()
+                    + LINE_SEP + "formatMaxLength: " + getFormatMaxLength()
+                    + LINE_SEP + "ringCapacity: " + getRingCapacity()
+                    + LINE_SEP + "ringFilter: " + getRingFilter()
+                    + LINE_SEP + "ringMmap: " + isRingMmapSwitch()
+                    + LINE_SEP + "formatter: " + I_FORMATTER_MAP
+                    + LINE_SEP + "sinks: " + sSinkWorkers.length;
         }
     }
 
@@ -853,6 +1444,147 @@ public final class LogUtils {
         public abstract String format(T t);
     }
 
+    /**
+     * The sink of logs, whose {@link #write(long, int, String, String, String)} is called
+     * on its own thread, so a slow sink never stalls the caller or the other sinks.
+     */
+    public abstract static class ISink {
+
+        private volatile int        mFilter        = V;
+        private int                 mQueueCapacity = 1024;
+        private int                 mQueueOverflow = OVERFLOW_BLOCK;
+        private volatile SinkWorker mWorker;
+
+        /**
+         * Set the filter of sink.
+         *
+         * @param filter The filter of sink.
+         * @return the sink
+         */
+        public final ISink setFilter(@TYPE final int filter) {
+            mFilter = filter;
+            return this;
+        }
+
+        public final int getFilter() {
+            return mFilter;
+        }
+
+        /**
+         * Set the capacity of the queue of sink.
+         *
+         * @param capacity The capacity of the queue.
+         * @return the sink
+         */
+        public final ISink setQueueCapacity(@IntRange(from = 1) final int capacity) {
+            mQueueCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Set the policy when the queue of sink is full.
+         *
+         * @param overflow The policy.
+         *                 <ul>
+         *                 <li>{@link LogUtils#OVERFLOW_DROP_OLDEST}</li>
+         *                 <li>{@link LogUtils#OVERFLOW_BLOCK}</li>
+         *                 </ul>
+         * @return the sink
+         */
+        public final ISink setQueueOverflow(@OVERFLOW final int overflow) {
+            mQueueOverflow = overflow;
+            return this;
+        }
+
+        /**
+         * Return the statistics of the queue of sink.
+         *
+         * @return the statistics of the queue
+         */
+        public final QueueStats getQueueStats() {
+            final SinkWorker worker = mWorker;
+            if (worker == null) return new QueueStats(0, 0, 0);
+            return worker.mQueue.getStats();
+        }
+
+        void write(final LogRecord record) {
+            write(record.time, record.type, record.tag, record.head, record.msg);
+        }
+
+        /**
+         * Write the log.
+         *
+         * @param millis The milliseconds of log.
+         * @param type   The type of log.
+         * @param tag    The tag of log.
+         * @param head   The head of log.
+         * @param msg    The message of log.
+         */
+        public abstract void write(long millis, @TYPE int type, String tag, String head, String msg);
+
+        /**
+         * Flush the written logs, which is called when the queue of sink is drained.
+         *
+         * @return the delay in milliseconds to flush again, or -1 to wait for the next log
+         */
+        public long flush() {
+            return -1;
+        }
+    }
+
+    /**
+     * The built-in sink of log file.
+     */
+    private static final class FileSink extends ISink {
+
+        private final StringBuilder mSb = new StringBuilder();
+
+        @Override
+        void write(final LogRecord record) {
+            write2File(record, mSb);
+        }
+
+        @Override
+        public void write(long millis, int type, String tag, String head, String msg) {
+            write(new LogRecord(millis, type, tag, head, msg));
+        }
+
+        @Override
+        public long flush() {
+            long blockDelay = BINARY_ENCODER.getFlushDelay();
+            if (blockDelay == 0) {
+                BINARY_ENCODER.flushBlock();
+                // The block has waited for the interval already, so write it through.
+                FILE_APPENDER.flush();
+                blockDelay = -1;
+            }
+            long delay = FILE_APPENDER.getFlushDelay();
+            if (delay == 0) {
+                FILE_APPENDER.flush();
+                delay = -1;
+            }
+            if (delay < 0) return blockDelay;
+            return blockDelay < 0 ? delay : Math.min(delay, blockDelay);
+        }
+    }
+
+    /**
+     * The content of log which is built only if the log will be printed.
+     */
+    public interface ISupplier {
+        Object get();
+    }
+
+    private static class Caller {
+        String tag;
+        String location;
+
+        Caller(String tag, String location) {
+            this.tag = tag;
+            this.location = location;
+        }
+    }
+
     private static class TagHead {
         String   tag;
         String[] consoleHead;
@@ -865,6 +1597,979 @@ public final class LogUtils {
         }
     }
 
+    /**
+     * The appender keeps the log file open and caches the logs in a file mapped to memory,
+     * which is flushed to the log file when it is full enough or the flush interval expires.
+     * Cache left by the dead process is recovered to its log file at the next time.
+     * <p>It must be used on the thread of {@link FileSink} only.</p>
+     */
+    private static final class FileAppender {
+
+        private static final int MAGIC        = 0x4C4F4755;// LOGU
+        private static final int OFFSET_LEN   = 4;
+        private static final int OFFSET_PATH  = 8;
+        private static final int HEADER_SIZE  = 1024;
+        private static final int MAX_PATH_LEN = HEADER_SIZE - OFFSET_PATH - 4;
+
+        private String           mCachePath;
+        private MappedByteBuffer mCache;
+        private String           mFilePath;
+        private String           mChannelPath;
+        private FileChannel      mChannel;
+        private long             mPendingMillis;
+        private long             mFileSize;
+
+        void append(final String filePath, final String content) {
+            append(filePath, content.getBytes(UTF_8));
+        }
+
+        void append(final String filePath, final byte[] bytes) {
+            openCache();
+            if (!filePath.equals(mFilePath)) {
+                flush();
+                mFilePath = filePath;
+                mFileSize = new File(filePath).length();
+                if (mCache != null && !putCachePath(filePath)) {
+                    mCache = null;
+                    mCachePath = null;
+                }
+            }
+            mFileSize += bytes.length;
+            if (mCache == null || bytes.length > mCache.capacity() - HEADER_SIZE) {
+                flush();
+                write(ByteBuffer.wrap(bytes));
+                return;
+            }
+            int len = mCache.getInt(OFFSET_LEN);
+            if (HEADER_SIZE + len + bytes.length > mCache.capacity()) {
+                flush();
+                len = 0;
+            }
+            ByteBuffer dst = mCache.duplicate();
+            dst.position(HEADER_SIZE + len);
+            dst.put(bytes);
+            len += bytes.length;
+            // Update the length after the data, so a dead process loses one record at most.
+            mCache.putInt(OFFSET_LEN, len);
+            if (len >= (mCache.capacity() - HEADER_SIZE) * 3 / 4) {
+                flush();
+            } else if (mPendingMillis == 0) {
+                mPendingMillis = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Return the size of file, including the bytes in cache.
+         */
+        long getFileSize(final String filePath) {
+            if (filePath.equals(mFilePath)) return mFileSize;
+            return new File(filePath).length();
+        }
+
+        /**
+         * Flush the cache and close the file, so it can be renamed.
+         */
+        void close() {
+            flush();
+            closeChannel();
+            mFilePath = null;
+            mFileSize = 0;
+        }
+
+        /**
+         * Return the delay of flushing the cache, {@code -1} if nothing is pending.
+         */
+        long getFlushDelay() {
+            if (mPendingMillis == 0) return -1;
+            long delay = mPendingMillis + CONFIG.getFileFlushInterval() - System.currentTimeMillis();
+            return delay < 0 ? 0 : delay;
+        }
+
+        void flush() {
+            mPendingMillis = 0;
+            if (mCache == null || mFilePath == null) return;
+            final int len = mCache.getInt(OFFSET_LEN);
+            if (len <= 0) return;
+            ByteBuffer src = mCache.duplicate();
+            src.position(HEADER_SIZE);
+            src.limit(HEADER_SIZE + len);
+            write(src);
+            mCache.putInt(OFFSET_LEN, 0);
+        }
+
+        private void openCache() {
+            if (CONFIG.getFileCacheSize() <= HEADER_SIZE) {
+                if (mCache != null) {
+                    flush();
+                    mCache = null;
+                    mCachePath = null;
+                }
+                return;
+            }
+            final String cachePath = CONFIG.getDir() + "." + CONFIG.getFilePrefix()
+                    + "-" + CONFIG.getProcessName() + ".mmap";
+            if (cachePath.equals(mCachePath)
+                    && mCache.capacity() == CONFIG.getFileCacheSize()) return;
+            flush();
+            mCache = null;
+            mCachePath = null;
+            if (!createOrExistsDir(new File(cachePath).getParentFile())) return;
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(cachePath, "rw");
+                mCache = raf.getChannel()
+                        .map(FileChannel.MapMode.READ_WRITE, 0, CONFIG.getFileCacheSize());
+                mCachePath = cachePath;
+            } catch (IOException e) {
+                e.printStackTrace();
+                Log.e("LogUtils", "map " + cachePath + " failed!");
+                return;
+            } finally {
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            recoverCache();
+        }
+
+        private void recoverCache() {
+            final int len = mCache.getInt(OFFSET_LEN);
+            if (mCache.getInt(0) == MAGIC
+                    && len > 0 && len <= mCache.capacity() - HEADER_SIZE) {
+                final int pathLen = mCache.getInt(OFFSET_PATH);
+                if (pathLen > 0 && pathLen <= MAX_PATH_LEN) {
+                    byte[] path = new byte[pathLen];
+                    ByteBuffer src = mCache.duplicate();
+                    src.position(OFFSET_PATH + 4);
+                    src.get(path);
+                    mFilePath = new String(path, UTF_8);
+                    flush();
+                    mFileSize = new File(mFilePath).length();
+                }
+            }
+            mCache.putInt(0, MAGIC);
+            mCache.putInt(OFFSET_LEN, 0);
+            if (mFilePath == null || !putCachePath(mFilePath)) {
+                mCache.putInt(OFFSET_PATH, 0);
+                mFilePath = null;
+            }
+        }
+
+        private boolean putCachePath(final String filePath) {
+            final byte[] path = filePath.getBytes(UTF_8);
+            if (path.length > MAX_PATH_LEN) return false;
+            ByteBuffer dst = mCache.duplicate();
+            dst.position(OFFSET_PATH + 4);
+            dst.put(path);
+            mCache.putInt(OFFSET_PATH, path.length);
+            return true;
+        }
+
+        private void write(final ByteBuffer src) {
+            try {
+                if (mChannel == null || !mFilePath.equals(mChannelPath)) {
+                    closeChannel();
+                    mChannel = new FileOutputStream(mFilePath, true).getChannel();
+                    mChannelPath = mFilePath;
+                }
+                while (src.hasRemaining()) {
+                    mChannel.write(src);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                Log.e("LogUtils", "log to " + mFilePath + " failed!");
+                closeChannel();
+            }
+        }
+
+        private void closeChannel() {
+            if (mChannel == null) return;
+            try {
+                mChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            mChannel = null;
+            mChannelPath = null;
+        }
+    }
+
+    /**
+     * The encoder of binary file, which must be used on the thread of {@link FileSink} only.
+     * <p>The tags and heads are interned, the time is stored as the varint of delta and
+     * the records can be deflated by block. See {@link LogDecoder} for the layout.</p>
+     */
+    private static final class BinaryEncoder {
+
+        private static final int BLOCK_SIZE  = 32 * 1024;
+        private static final int MAX_STRINGS = 4096;
+
+        private final Map<String, Integer>  mStrings = new HashMap<>();
+        private final ByteArrayOutputStream mBlock   = new ByteArrayOutputStream(BLOCK_SIZE);
+        private final Deflater              mDeflater;
+        private final byte[]                mDeflateBuffer;
+        private       String                mFilePath;
+        private       boolean               mIsDeflate;
+        private       long                  mLastTime;
+        private       long                  mPendingMillis;
+
+        BinaryEncoder() {
+            mDeflater = new Deflater(Deflater.BEST_SPEED);
+            mDeflateBuffer = new byte[BLOCK_SIZE];
+        }
+
+        void encode(final String filePath, final LogRecord record) {
+            prepare(filePath, record.time);
+            startBlock();
+            final int tagId = intern(record.tag);
+            final int headId = intern(record.head);
+            mBlock.write(LogDecoder.FRAME_RECORD);
+            writeVarLong(mBlock, zigZag(record.time - mLastTime));
+            mLastTime = record.time;
+            mBlock.write(record.type);
+            writeVarLong(mBlock, tagId);
+            writeVarLong(mBlock, headId);
+            writeString(mBlock, record.msg);
+            if (!mIsDeflate || mBlock.size() >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        void encodeText(final String filePath, final String text) {
+            prepare(filePath, System.currentTimeMillis());
+            startBlock();
+            mBlock.write(LogDecoder.FRAME_TEXT);
+            writeString(mBlock, text);
+            if (!mIsDeflate || mBlock.size() >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        /**
+         * Flush the block and start a new session for the next record.
+         */
+        void reset() {
+            flushBlock();
+            mFilePath = null;
+        }
+
+        /**
+         * Return the delay of flushing the block, {@code -1} if nothing is pending.
+         */
+        long getFlushDelay() {
+            if (mPendingMillis == 0) return -1;
+            long delay = mPendingMillis + CONFIG.getFileFlushInterval() - System.currentTimeMillis();
+            return delay < 0 ? 0 : delay;
+        }
+
+        void flushBlock() {
+            mPendingMillis = 0;
+            if (mBlock.size() == 0) return;
+            final byte[] raw = mBlock.toByteArray();
+            mBlock.reset();
+            if (!mIsDeflate) {
+                FILE_APPENDER.append(mFilePath, raw);
+                return;
+            }
+            mDeflater.reset();
+            mDeflater.setInput(raw);
+            mDeflater.finish();
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+            while (!mDeflater.finished()) {
+                int len = mDeflater.deflate(mDeflateBuffer);
+                compressed.write(mDeflateBuffer, 0, len);
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.size() + 16);
+            out.write(LogDecoder.FRAME_BLOCK);
+            writeVarLong(out, raw.length);
+            writeVarLong(out, compressed.size());
+            out.write(compressed.toByteArray(), 0, compressed.size());
+            FILE_APPENDER.append(mFilePath, out.toByteArray());
+        }
+
+        /**
+         * Start a new session, which resets the strings and the time of decoder,
+         * when the file or the deflate's switch changes or too many strings are interned.
+         */
+        private void prepare(final String filePath, final long time) {
+            final boolean isDeflate = CONFIG.isFileDeflateSwitch();
+            if (filePath.equals(mFilePath)
+                    && isDeflate == mIsDeflate
+                    && mStrings.size() < MAX_STRINGS) {
+                return;
+            }
+            flushBlock();
+            mFilePath = filePath;
+            mIsDeflate = isDeflate;
+            mStrings.clear();
+            mLastTime = time;
+            final ByteArrayOutputStream session = new ByteArrayOutputStream(16);
+            session.write(LogDecoder.FRAME_SESSION);
+            session.write(LogDecoder.MAGIC >>> 24);
+            session.write(LogDecoder.MAGIC >>> 16);
+            session.write(LogDecoder.MAGIC >>> 8);
+            session.write(LogDecoder.MAGIC);
+            session.write(LogDecoder.VERSION);
+            writeVarLong(session, time);
+            writeString(session, getSdf().getTimeZone().getID());
+            writeString(session, LINE_SEP);
+            FILE_APPENDER.append(filePath, session.toByteArray());
+        }
+
+        private void startBlock() {
+            if (mIsDeflate && mBlock.size() == 0) {
+                mPendingMillis = System.currentTimeMillis();
+            }
+        }
+
+        private int intern(final String s) {
+            Integer id = mStrings.get(s);
+            if (id == null) {
+                id = mStrings.size();
+                mStrings.put(s, id);
+                mBlock.write(LogDecoder.FRAME_STRING);
+                writeVarLong(mBlock, id);
+                writeString(mBlock, s);
+            }
+            return id;
+        }
+
+        private static long zigZag(final long n) {
+            return (n << 1) ^ (n >> 63);
+        }
+
+        private static void writeString(final ByteArrayOutputStream out, final String s) {
+            final byte[] bytes = s.getBytes(UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private static void writeVarLong(final ByteArrayOutputStream out, long n) {
+            while ((n & ~0x7FL) != 0) {
+                out.write((int) ((n & 0x7F) | 0x80));
+                n >>>= 7;
+            }
+            out.write((int) n);
+        }
+    }
+
+    /**
+     * The decoder of binary file, which works without Android, such as
+     * {@code java -cp utilcode.jar com.blankj.utilcode.util.LogUtils\$LogDecoder in.bin [out.txt]}.
+     * <p>The binary file is a sequence of frames, the first byte of frame is its type:</p>
+     * <ul>
+     * <li>{@link #FRAME_SESSION}: magic(4), version(1), time(varint), id of time zone,
+     * line separator, resets strings and time</li>
+     * <li>{@link #FRAME_STRING}: id(varint), string, defines the interned string</li>
+     * <li>{@link #FRAME_RECORD}: zigzag delta of time(varint), type(1), id of tag(varint),
+     * id of head(varint), message</li>
+     * <li>{@link #FRAME_TEXT}: string, the raw text such as the head of file</li>
+     * <li>{@link #FRAME_BLOCK}: length of raw(varint), length of deflated(varint), deflated frames</li>
+     * </ul>
+     * <p>The string is the length of its utf-8 bytes(varint) and the bytes. The time zone and
+     * line separator of session are the ones of text file, so the output matches it.</p>
+     */
+    public static final class LogDecoder {
+
+        static final int MAGIC         = 0x554C4F47;// ULOG
+        static final int VERSION       = 2;
+        static final int FRAME_SESSION = 1;
+        static final int FRAME_STRING  = 2;
+        static final int FRAME_RECORD  = 3;
+        static final int FRAME_TEXT    = 4;
+        static final int FRAME_BLOCK   = 5;
+
+        private static final char[] LEVELS   = new char[]{'V', 'D', 'I', 'W', 'E', 'A'};
+        private static final String LINE_SEP = System.getProperty("line.separator");
+
+        private final List<String>     mStrings = new ArrayList<>();
+        private final SimpleDateFormat mSdf     = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        private       String           mLineSep = LINE_SEP;
+        private       long             mLastTime;
+
+        private LogDecoder() {
+        }
+
+        public static void main(String[] args) throws IOException {
+            if (args.length < 1) {
+                System.err.println("Usage: LogDecoder <in.bin> [out.txt]");
+                System.exit(1);
+            }
+            final InputStream is = new FileInputStream(args[0]);
+            final OutputStream os = args.length > 1 ? new FileOutputStream(args[1]) : System.out;
+            try {
+                decode(is, os);
+            } finally {
+                is.close();
+                if (os != System.out) {
+                    os.close();
+                } else {
+                    os.flush();
+                }
+            }
+        }
+
+        /**
+         * Decode the binary file to the layout of text file.
+         *
+         * @param srcFilePath  The path of binary file.
+         * @param destFilePath The path of text file.
+         * @return {@code true}: success<br>{@code false}: fail
+         */
+        public static boolean decode(final String srcFilePath, final String destFilePath) {
+            InputStream is = null;
+            OutputStream os = null;
+            try {
+                is = new FileInputStream(srcFilePath);
+                os = new FileOutputStream(destFilePath);
+                decode(is, os);
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                try {
+                    if (is != null) is.close();
+                    if (os != null) os.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Decode the binary stream to the layout of text file.
+         * <p>The truncated frame at the end, which may be left by a dead process, is ignored.</p>
+         *
+         * @param is The input stream of binary file.
+         * @param os The output stream of text.
+         * @throws IOException if an I/O error occurs
+         */
+        public static void decode(final InputStream is, final OutputStream os) throws IOException {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+            final LogDecoder decoder = new LogDecoder();
+            try {
+                decoder.decodeFrames(new DataInputStream(new BufferedInputStream(is)), writer);
+            } catch (EOFException ignore) {
+                // truncated
+            }
+            writer.flush();
+        }
+
+        private void decodeFrames(final DataInputStream in, final Writer writer) throws IOException {
+            int frame;
+            while ((frame = in.read()) != -1) {
+                switch (frame) {
+                    case FRAME_SESSION:
+                        if (in.readInt() != MAGIC) throw new IOException("bad magic");
+                        final int version = in.readUnsignedByte();
+                        if (version != VERSION) throw new IOException("bad version: " + version);
+                        mStrings.clear();
+                        mLastTime = readVarLong(in);
+                        mSdf.setTimeZone(TimeZone.getTimeZone(readString(in)));
+                        mLineSep = readString(in);
+                        break;
+                    case FRAME_STRING:
+                        final long id = readVarLong(in);
+                        final String s = readString(in);
+                        if (id == mStrings.size()) {
+                            mStrings.add(s);
+                        } else if (id >= 0 && id < mStrings.size()) {
+                            mStrings.set((int) id, s);
+                        } else {
+                            throw new IOException("bad string id: " + id);
+                        }
+                        break;
+                    case FRAME_RECORD:
+                        final long delta = readVarLong(in);
+                        mLastTime += (delta >>> 1) ^ -(delta & 1);
+                        final int type = in.readUnsignedByte();
+                        final String tag = getString(readVarLong(in));
+                        final String head = getString(readVarLong(in));
+                        final String msg = readString(in);
+                        writer.write(mSdf.format(new Date(mLastTime)));
+                        writer.write(type >= V && type <= A ? LEVELS[type - V] : '?');
+                        writer.write('/');
+                        writer.write(tag);
+                        writer.write(head);
+                        writer.write(msg);
+                        writer.write(mLineSep);
+                        break;
+                    case FRAME_TEXT:
+                        writer.write(readString(in));
+                        break;
+                    case FRAME_BLOCK:
+                        final int rawLen = readLength(in);
+                        final byte[] compressed = new byte[readLength(in)];
+                        in.readFully(compressed);
+                        final byte[] raw = new byte[rawLen];
+                        final Inflater inflater = new Inflater();
+                        try {
+                            inflater.setInput(compressed);
+                            int off = 0;
+                            while (off < rawLen && !inflater.finished()) {
+                                off += inflater.inflate(raw, off, rawLen - off);
+                            }
+                        } catch (DataFormatException e) {
+                            throw new IOException(e.toString());
+                        } finally {
+                            inflater.end();
+                        }
+                        decodeFrames(new DataInputStream(new ByteArrayInputStream(raw)), writer);
+                        break;
+                    default:
+                        throw new IOException("unknown frame: " + frame);
+                }
+            }
+        }
+
+        private String getString(final long id) throws IOException {
+            if (id < 0 || id >= mStrings.size()) throw new IOException("bad string id: " + id);
+            return mStrings.get((int) id);
+        }
+
+        private static String readString(final DataInputStream in) throws IOException {
+            final byte[] bytes = new byte[readLength(in)];
+            in.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+
+        private static int readLength(final DataInputStream in) throws IOException {
+            final long len = readVarLong(in);
+            if (len < 0 || len > Integer.MAX_VALUE) throw new IOException("bad length: " + len);
+            return (int) len;
+        }
+
+        private static long readVarLong(final DataInputStream in) throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = in.readUnsignedByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+
+    public static final class QueueStats {
+        private final long mEnqueued;
+        private final long mQueued;
+        private final long mDropped;
+
+        QueueStats(final long enqueued, final long queued, final long dropped) {
+            mEnqueued = enqueued;
+            mQueued = queued;
+            mDropped = dropped;
+        }
+
+        /**
+         * Return the count of records which have been put into the queue.
+         */
+        public long getEnqueued() {
+            return mEnqueued;
+        }
+
+        /**
+         * Return the count of records which are waiting in the queue.
+         */
+        public long getQueued() {
+            return mQueued;
+        }
+
+        /**
+         * Return the count of records which have been dropped because the queue is full.
+         */
+        public long getDropped() {
+            return mDropped;
+        }
+
+        @Override
+        public String toString() {
+            return "enqueued: " + mEnqueued + ", queued: " + mQueued + ", dropped: " + mDropped;
+        }
+    }
+
+    /**
+     * The ring of last logs, each log is encoded into its fixed slot without allocation,
+     * so it is cheap enough to keep every log and safe to dump when crashing.
+     * <p>The slot is {@code seq(8), time(8), type(1), length(2), utf-8 bytes}, the seq is
+     * set to {@code -1} while writing and to the seq of log after written.</p>
+     */
+    private static final class LogRing {
+
+        private static final int MAGIC       = 0x474E4952;// RING
+        private static final int HEADER_SIZE = 16;
+        private static final int SLOT_SIZE   = 1024;
+        private static final int SLOT_HEAD   = 19;
+
+        private final int        mCapacity;
+        private final boolean    mMmapSwitch;// The requested one, even if mapping failed.
+        private final ByteBuffer mBuffer;
+        private final AtomicLong mCursor = new AtomicLong();
+
+        LogRing(final int capacity, final boolean mmapSwitch) {
+            mCapacity = capacity;
+            mMmapSwitch = mmapSwitch;
+            ByteBuffer buffer = null;
+            if (mmapSwitch) {
+                buffer = mapRing(capacity);
+            }
+            mBuffer = buffer != null ? buffer : ByteBuffer.allocate(HEADER_SIZE + capacity * SLOT_SIZE);
+            mBuffer.putInt(0, MAGIC);
+            mBuffer.putInt(4, capacity);
+            mBuffer.putInt(8, SLOT_SIZE);
+            for (int i = 0; i < capacity; i++) {
+                mBuffer.putLong(HEADER_SIZE + i * SLOT_SIZE, -1);
+            }
+        }
+
+        private static ByteBuffer mapRing(final int capacity) {
+            final String path = CONFIG.getDir() + "." + CONFIG.getFilePrefix()
+                    + "-" + CONFIG.getProcessName() + ".ring";
+            if (!createOrExistsDir(new File(path).getParentFile())) return null;
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(path, "rw");
+                final FileChannel channel = raf.getChannel();
+                if (!sIsLastRingRead && channel.size() > HEADER_SIZE) {
+                    // Keep the logs of last process before the ring is reset,
+                    // the ring mapped again in this process holds its own logs.
+                    final ByteBuffer last = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (last.getInt(0) == MAGIC && last.getInt(8) == SLOT_SIZE) {
+                        final int lastCapacity = last.getInt(4);
+                        if (lastCapacity > 0 && HEADER_SIZE + (long) lastCapacity * SLOT_SIZE <= last.capacity()) {
+                            sLastRingLogs = dump(last, lastCapacity, 0, Long.MAX_VALUE);
+                        }
+                    }
+                }
+                sIsLastRingRead = true;
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                Log.e("LogUtils", "map " + path + " failed!");
+                return null;
+            } finally {
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        void write(final long millis, final int type, final String tag, final String head, final String msg) {
+            final long seq = mCursor.getAndIncrement();
+            final int start = HEADER_SIZE + (int) (seq % mCapacity) * SLOT_SIZE;
+            final ByteBuffer buffer = mBuffer;
+            buffer.putLong(start, -1);
+            buffer.putLong(start + 8, millis);
+            buffer.put(start + 16, (byte) type);
+            int pos = start + SLOT_HEAD;
+            final int end = start + SLOT_SIZE;
+            pos = putUtf8(buffer, pos, end, tag);
+            pos = putUtf8(buffer, pos, end, head);
+            pos = putUtf8(buffer, pos, end, msg);
+            buffer.putShort(start + 17, (short) (pos - start - SLOT_HEAD));
+            buffer.putLong(start, seq);
+        }
+
+        private static int putUtf8(final ByteBuffer buffer, int pos, final int end, final String s) {
+            for (int i = 0, len = s.length(); i < len; i++) {
+                int c = s.charAt(i);
+                if (c < 0x80) {
+                    if (pos + 1 > end) break;
+                    buffer.put(pos++, (byte) c);
+                } else if (c < 0x800) {
+                    if (pos + 2 > end) break;
+                    buffer.put(pos++, (byte) (0xC0 | (c >> 6)));
+                    buffer.put(pos++, (byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate((char) c) && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    if (pos + 4 > end) break;
+                    c = Character.toCodePoint((char) c, s.charAt(++i));
+                    buffer.put(pos++, (byte) (0xF0 | (c >> 18)));
+                    buffer.put(pos++, (byte) (0x80 | ((c >> 12) & 0x3F)));
+                    buffer.put(pos++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put(pos++, (byte) (0x80 | (c & 0x3F)));
+                } else {
+                    if (pos + 3 > end) break;
+                    buffer.put(pos++, (byte) (0xE0 | (c >> 12)));
+                    buffer.put(pos++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put(pos++, (byte) (0x80 | (c & 0x3F)));
+                }
+            }
+            return pos;
+        }
+
+        String dump() {
+            final long cursor = mCursor.get();
+            return dump(mBuffer, mCapacity, Math.max(0, cursor - mCapacity), cursor);
+        }
+
+        /**
+         * Dump the logs whose seq is in [from, to) in order, the slots being written are skipped.
+         */
+        private static String dump(final ByteBuffer buffer, final int capacity,
+                                   final long from, final long to) {
+            final long[] seqs = new long[capacity];
+            final int[] slots = new int[capacity];
+            int count = 0;
+            for (int i = 0; i < capacity; i++) {
+                final long seq = buffer.getLong(HEADER_SIZE + i * SLOT_SIZE);
+                if (seq >= from && seq < to) {
+                    int j = count++;
+                    while (j > 0 && seqs[j - 1] > seq) {
+                        seqs[j] = seqs[j - 1];
+                        slots[j] = slots[j - 1];
+                        j--;
+                    }
+                    seqs[j] = seq;
+                    slots[j] = i;
+                }
+            }
+            final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS ", Locale.getDefault());
+            final StringBuilder sb = new StringBuilder(count * 128);
+            final byte[] bytes = new byte[SLOT_SIZE];
+            for (int i = 0; i < count; i++) {
+                final int start = HEADER_SIZE + slots[i] * SLOT_SIZE;
+                final long millis = buffer.getLong(start + 8);
+                final int type = buffer.get(start + 16);
+                final int len = buffer.getShort(start + 17) & 0xFFFF;
+                if (type < V || type > A || len > SLOT_SIZE - SLOT_HEAD) continue;
+                final ByteBuffer src = buffer.duplicate();
+                src.position(start + SLOT_HEAD);
+                src.get(bytes, 0, len);
+                // Skip the slot which is overwritten while copying.
+                if (buffer.getLong(start) != seqs[i]) continue;
+                sb.append(sdf.format(new Date(millis)))
+                        .append(T[type - V])
+                        .append("/")
+                        .append(new String(bytes, 0, len, UTF_8))
+                        .append(LINE_SEP);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final class LogRecord {
+        final long   time;
+        final int    type;
+        final String tag;
+        final String head;
+        final String msg;
+
+        LogRecord(long time, int type, String tag, String head, String msg) {
+            this.time = time;
+            this.type = type;
+            this.tag = tag;
+            this.head = head;
+            this.msg = msg;
+        }
+    }
+
+    /**
+     * The bounded lock-free queue of records, which is based on the sequence of each slot.
+     */
+    private static final class LogQueue {
+
+        private final LogRecord[]     mBuffer;
+        private final AtomicLongArray mSequences;
+        private final int             mMask;
+        private final int             mOverflow;
+        private final AtomicLong      mTail    = new AtomicLong();
+        private final AtomicLong      mHead    = new AtomicLong();
+        private final AtomicLong      mDropped = new AtomicLong();
+
+        private final ConcurrentLinkedQueue<Thread> mWaiters = new ConcurrentLinkedQueue<>();
+
+        LogQueue(final int capacity, final int overflow) {
+            int size = 1;
+            while (size < capacity) {
+                size <<= 1;
+            }
+            mBuffer = new LogRecord[size];
+            mSequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                mSequences.set(i, i);
+            }
+            mMask = size - 1;
+            mOverflow = overflow;
+        }
+
+        /**
+         * Put the record into the queue, and apply the overflow policy if the queue is full.
+         * <p>The blocked thread waits until the consumer drains the queue, the record is
+         * dropped if the consumer is dead, and the oldest one is dropped if the blocked
+         * thread is interrupted.</p>
+         *
+         * @param record   The record.
+         * @param consumer The thread which consumes the queue.
+         */
+        void put(final LogRecord record, final Thread consumer) {
+            while (!offer(record)) {
+                if (mOverflow == OVERFLOW_BLOCK && !Thread.currentThread().isInterrupted()) {
+                    if (!consumer.isAlive()) {
+                        mDropped.incrementAndGet();
+                        return;
+                    }
+                    final Thread current = Thread.currentThread();
+                    mWaiters.add(current);
+                    LockSupport.unpark(consumer);
+                    // Check again after waiting in line, so the signal of drain isn't missed.
+                    // The timeout only notices the death of consumer.
+                    if (isFull()) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                    mWaiters.remove(current);
+                } else if (poll() != null) {
+                    mDropped.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Wake up the threads which are blocked by the full queue, called after draining.
+         */
+        void signalWaiters() {
+            for (Thread waiter : mWaiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        boolean offer(final LogRecord record) {
+            long pos = mTail.get();
+            for (; ; ) {
+                final int index = (int) pos & mMask;
+                final long diff = mSequences.get(index) - pos;
+                if (diff == 0) {
+                    if (mTail.compareAndSet(pos, pos + 1)) {
+                        mBuffer[index] = record;
+                        mSequences.set(index, pos + 1);
+                        return true;
+                    }
+                } else if (diff < 0) {
+                    return false;
+                }
+                pos = mTail.get();
+            }
+        }
+
+        LogRecord poll() {
+            long pos = mHead.get();
+            for (; ; ) {
+                final int index = (int) pos & mMask;
+                final long diff = mSequences.get(index) - (pos + 1);
+                if (diff == 0) {
+                    if (mHead.compareAndSet(pos, pos + 1)) {
+                        final LogRecord record = mBuffer[index];
+                        mBuffer[index] = null;
+                        mSequences.set(index, pos + mMask + 1);
+                        return record;
+                    }
+                } else if (diff < 0) {
+                    return null;
+                }
+                pos = mHead.get();
+            }
+        }
+
+        int drainTo(final LogRecord[] batch) {
+            int count = 0;
+            LogRecord record;
+            while (count < batch.length && (record = poll()) != null) {
+                batch[count++] = record;
+            }
+            return count;
+        }
+
+        boolean isEmpty() {
+            return mHead.get() >= mTail.get();
+        }
+
+        private boolean isFull() {
+            return mTail.get() - mHead.get() > mMask;
+        }
+
+        QueueStats getStats() {
+            final long tail = mTail.get();
+            return new QueueStats(tail, Math.max(0, tail - mHead.get()), mDropped.get());
+        }
+    }
+
+    /**
+     * The single thread which drains the records to its sink in batches.
+     */
+    private static final class SinkWorker extends Thread {
+
+        private static final int BATCH_SIZE = 64;
+
+        private final ISink         mSink;
+        private final LogQueue      mQueue;
+        private final AtomicBoolean mIsParked = new AtomicBoolean();
+        private volatile boolean    mIsQuit;
+
+        SinkWorker(final String name, final ISink sink, final int capacity, final int overflow) {
+            super(name);
+            setDaemon(true);
+            mSink = sink;
+            mQueue = new LogQueue(capacity, overflow);
+        }
+
+        void enqueue(final LogRecord record) {
+            mQueue.put(record, this);
+            if (mIsParked.get() && mIsParked.compareAndSet(true, false)) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        void quit() {
+            mIsQuit = true;
+            LockSupport.unpark(this);
+        }
+
+        @Override
+        public void run() {
+            final LogRecord[] batch = new LogRecord[BATCH_SIZE];
+            for (; ; ) {
+                final int count = mQueue.drainTo(batch);
+                if (count > 0) mQueue.signalWaiters();
+                for (int i = 0; i < count; i++) {
+                    try {
+                        mSink.write(batch[i]);
+                    } catch (Throwable t) {
+                        Log.e("LogUtils", "log to sink failed!", t);
+                    }
+                    batch[i] = null;
+                }
+                if (count == BATCH_SIZE) continue;
+                long delay;
+                try {
+                    delay = mSink.flush();
+                } catch (Throwable t) {
+                    Log.e("LogUtils", "flush sink failed!", t);
+                    delay = -1;
+                }
+                if (delay == 0) continue;
+                if (mIsQuit && mQueue.isEmpty()) return;
+                mIsParked.set(true);
+                if (mQueue.isEmpty() && !mIsQuit) {
+                    if (delay < 0) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delay));
+                    }
+                }
+                mIsParked.set(false);
+            }
+        }
+    }
+
     private static class LogFormatter {
 
         static String object2String(Object object) {
@@ -880,25 +2585,46 @@ public final class LogUtils {
                 return formatJson(object.toString());
             }
             try {
-                return GSON.toJson(object);
+                return truncate(GSON.toJson(object));
             } catch (Throwable t) {
                 return object.toString();
             }
         }
 
         static String formatXml(String xml) {
+            final LimitedWriter writer = new LimitedWriter(CONFIG.getFormatMaxLength());
             try {
                 Source xmlInput = new StreamSource(new StringReader(xml));
-                StreamResult xmlOutput = new StreamResult(new StringWriter());
-                Transformer transformer = TransformerFactory.newInstance().newTransformer();
+                StreamResult xmlOutput = new StreamResult(writer);
+                getTransformer().transform(xmlInput, xmlOutput);
+            } catch (Exception e) {
+                if (!writer.isFull()) {
+                    e.printStackTrace();
+                    return xml;
+                }
+            }
+            final StringBuilder sb = writer.mSb;
+            final int index = sb.indexOf(">");
+            if (index >= 0) sb.insert(index + 1, LINE_SEP);
+            if (writer.isFull()) sb.append(TRUNCATED);
+            return sb.toString();
+        }
+
+        private static Transformer getTransformer() throws TransformerConfigurationException {
+            Transformer transformer = TRANSFORMER_THREAD_LOCAL.get();
+            if (transformer == null) {
+                transformer = TransformerFactory.newInstance().newTransformer();
                 transformer.setOutputProperty(OutputKeys.INDENT, "yes");
                 transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-                transformer.transform(xmlInput, xmlOutput);
-                xml = xmlOutput.getWriter().toString().replaceFirst(">", ">" + LINE_SEP);
-            } catch (Exception e) {
-                e.printStackTrace();
+                TRANSFORMER_THREAD_LOCAL.set(transformer);
             }
-            return xml;
+            return transformer;
+        }
+
+        private static String truncate(final String s) {
+            final int maxLength = CONFIG.getFormatMaxLength();
+            if (maxLength <= 0 || s.length() <= maxLength) return s;
+            return s.substring(0, maxLength) + TRUNCATED;
         }
 
         private static String throwable2String(final Throwable e) {
@@ -1036,22 +2762,126 @@ public final class LogUtils {
             return sb.toString();
         }
 
+        /**
+         * Indent the json in one pass without parsing it, the json which is not an object
+         * or array, or whose brackets are unbalanced, is returned as it is.
+         */
         private static String formatJson(String json) {
-            try {
-                for (int i = 0, len = json.length(); i < len; i++) {
-                    char c = json.charAt(i);
-                    if (c == '{') {
-                        return new JSONObject(json).toString(2);
-                    } else if (c == '[') {
-                        return new JSONArray(json).toString(2);
-                    } else if (!Character.isWhitespace(c)) {
-                        return json;
+            final int len = json.length();
+            int i = 0;
+            while (i < len && Character.isWhitespace(json.charAt(i))) {
+                i++;
+            }
+            if (i == len || (json.charAt(i) != '{' && json.charAt(i) != '[')) return json;
+            final int maxLength = CONFIG.getFormatMaxLength();
+            int capacity = len + (len >> 1);
+            if (maxLength > 0) capacity = Math.min(capacity, maxLength + TRUNCATED.length());
+            final StringBuilder sb = new StringBuilder(capacity);
+            int depth = 0;
+            boolean isInString = false;
+            for (; i < len; i++) {
+                if (maxLength > 0 && sb.length() >= maxLength) {
+                    sb.setLength(maxLength);
+                    return sb.append(TRUNCATED).toString();
+                }
+                final char c = json.charAt(i);
+                if (isInString) {
+                    sb.append(c);
+                    if (c == '\\' && i + 1 < len) {
+                        sb.append(json.charAt(++i));
+                    } else if (c == '"') {
+                        isInString = false;
                     }
+                    continue;
                 }
-            } catch (JSONException e) {
-                e.printStackTrace();
+                switch (c) {
+                    case '"':
+                        isInString = true;
+                        sb.append(c);
+                        break;
+                    case '{':
+                    case '[':
+                        sb.append(c);
+                        final int next = nextNonWhitespace(json, i + 1);
+                        if (next < len && json.charAt(next) == (c == '{' ? '}' : ']')) {
+                            sb.append(json.charAt(next));
+                            i = next;
+                        } else {
+                            appendIndent(sb, ++depth);
+                        }
+                        break;
+                    case '}':
+                    case ']':
+                        if (--depth < 0) return json;
+                        appendIndent(sb, depth);
+                        sb.append(c);
+                        break;
+                    case ',':
+                        sb.append(c);
+                        appendIndent(sb, depth);
+                        break;
+                    case ':':
+                        sb.append(": ");
+                        break;
+                    default:
+                        if (!Character.isWhitespace(c)) {
+                            sb.append(c);
+                        }
+                        break;
+                }
+            }
+            return sb.toString();
+        }
+
+        private static int nextNonWhitespace(final String s, int i) {
+            final int len = s.length();
+            while (i < len && Character.isWhitespace(s.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static void appendIndent(final StringBuilder sb, final int depth) {
+            sb.append('\n');
+            for (int i = 0; i < depth; i++) {
+                sb.append("  ");
+            }
+        }
+
+        /**
+         * The writer which stops the transform once the max length is reached.
+         */
+        private static final class LimitedWriter extends Writer {
+
+            private final StringBuilder mSb = new StringBuilder();
+            private final int           mMaxLength;
+            private       boolean       mIsFull;
+
+            LimitedWriter(final int maxLength) {
+                mMaxLength = maxLength;
+            }
+
+            boolean isFull() {
+                return mIsFull;
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (mMaxLength > 0 && mSb.length() + len > mMaxLength) {
+                    mSb.append(cbuf, off, mMaxLength - mSb.length());
+                    mIsFull = true;
+                    throw new IOException("reach the max length");
+                }
+                mSb.append(cbuf, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
             }
-            return json;
         }
 
         @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
@@ -1,5 +1,6 @@
 package com.blankj.utilcode.util;
 
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.IntRange;
@@ -7,9 +8,16 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 import android.util.SparseArray;
+import android.view.Choreographer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -18,6 +26,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -841,8 +850,19 @@ public final class ThreadUtils {
         task.cancel();
     }
 
+    /**
+     * Cancel the given task.
+     *
+     * @param task                  The task to cancel.
+     * @param mayInterruptIfRunning True to interrupt the thread which is executing the task.
+     */
+    public static void cancel(final Task task, final boolean mayInterruptIfRunning) {
+        task.cancel(mayInterruptIfRunning);
+    }
+
     /**
      * Set the deliver.
+     * <p>Use {@link BatchDeliver} to coalesce the callbacks of tasks into one message per frame.</p>
      *
      * @param deliver The deliver.
      */
@@ -975,6 +995,83 @@ public final class ThreadUtils {
         return sDeliver;
     }
 
+    /**
+     * The deliver which coalesces the callbacks into one message of main thread per frame.
+     * <p>Callbacks which exceed the budget of a frame roll over to the next frame.</p>
+     */
+    public static final class BatchDeliver implements Executor {
+
+        private static final long DEFAULT_FRAME_BUDGET_MILLIS = 8;
+
+        private final    Handler                     mHandler   = new Handler(Looper.getMainLooper());
+        private final    Queue<Runnable>             mQueue     = new ConcurrentLinkedQueue<>();
+        private final    AtomicBoolean               mScheduled = new AtomicBoolean();
+        private final    long                        mFrameBudgetNanos;
+        private final    Runnable                    mDrainRunnable;
+        private volatile Choreographer               mChoreographer;
+        private          Choreographer.FrameCallback mFrameCallback;
+
+        public BatchDeliver() {
+            this(DEFAULT_FRAME_BUDGET_MILLIS);
+        }
+
+        /**
+         * @param frameBudgetMillis The max time of delivering callbacks in a frame.
+         */
+        public BatchDeliver(@IntRange(from = 1) final long frameBudgetMillis) {
+            mFrameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(frameBudgetMillis);
+            mDrainRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            };
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mQueue.offer(command);
+            if (mScheduled.compareAndSet(false, true)) {
+                scheduleDrain();
+            }
+        }
+
+        private void scheduleDrain() {
+            Choreographer choreographer = mChoreographer;
+            if (choreographer != null) {
+                choreographer.postFrameCallback(mFrameCallback);
+            } else {
+                mHandler.post(mDrainRunnable);
+            }
+        }
+
+        private void drain() {
+            if (mChoreographer == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                // Choreographer is thread local, so get the one of main thread here.
+                mFrameCallback = new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        drain();
+                    }
+                };
+                mChoreographer = Choreographer.getInstance();
+            }
+            final long deadline = System.nanoTime() + mFrameBudgetNanos;
+            try {
+                Runnable command;
+                while ((command = mQueue.poll()) != null) {
+                    command.run();
+                    if (System.nanoTime() >= deadline) break;
+                }
+            } finally {
+                mScheduled.set(false);
+                if (!mQueue.isEmpty() && mScheduled.compareAndSet(false, true)) {
+                    scheduleDrain();
+                }
+            }
+        }
+    }
+
     public abstract static class SimpleTask<T> extends Task<T> {
 
         @Override
@@ -998,6 +1095,10 @@ public final class ThreadUtils {
 
         private volatile int     state = NEW;
         private          boolean isSchedule;
+        private volatile Thread  runner;
+        private          boolean interruptChildren;
+
+        private final List<Task> children = new ArrayList<>();
 
         @Nullable
         public abstract T doInBackground() throws Throwable;
@@ -1011,6 +1112,10 @@ public final class ThreadUtils {
 
         @Override
         public void run() {
+            synchronized (this) {
+                if (state != NEW) return;
+                runner = Thread.currentThread();
+            }
             try {
                 final T result = doInBackground();
 
@@ -1044,13 +1149,43 @@ public final class ThreadUtils {
                         removeScheduleByTask(Task.this);
                     }
                 });
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    if (state == CANCELLED) {
+                        // Clear the interrupt which cancel may have set,
+                        // so the worker of pool can be reused.
+                        Thread.interrupted();
+                    }
+                }
             }
         }
 
         public void cancel() {
-            if (state != NEW) return;
+            cancel(false);
+        }
 
-            state = CANCELLED;
+        /**
+         * Cancel the task.
+         *
+         * @param mayInterruptIfRunning True to interrupt the thread which is executing the task.
+         */
+        public void cancel(final boolean mayInterruptIfRunning) {
+            final Task[] childTasks;
+            synchronized (this) {
+                if (state != NEW) return;
+
+                state = CANCELLED;
+                interruptChildren = mayInterruptIfRunning;
+                if (mayInterruptIfRunning && runner != null) {
+                    runner.interrupt();
+                }
+                childTasks = children.toArray(new Task[0]);
+                children.clear();
+            }
+            for (Task child : childTasks) {
+                child.cancel(mayInterruptIfRunning);
+            }
             getDeliver().execute(new Runnable() {
                 @Override
                 public void run() {
@@ -1063,6 +1198,42 @@ public final class ThreadUtils {
         public boolean isCanceled() {
             return state == CANCELLED;
         }
+
+        /**
+         * Throw {@link CancellationException} if the task has been canceled,
+         * which is useful to break the long loop in {@link #doInBackground()}.
+         *
+         * @throws CancellationException if the task has been canceled
+         */
+        public void checkCancelled() throws CancellationException {
+            if (state == CANCELLED) {
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Add the child task which will be canceled when the task is canceled.
+         *
+         * @param child The child task.
+         */
+        public void addChild(final Task child) {
+            if (child == null || child == this) return;
+            final boolean mayInterruptIfRunning;
+            synchronized (this) {
+                if (state != CANCELLED) {
+                    Iterator<Task> iterator = children.iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().state != NEW) {
+                            iterator.remove();
+                        }
+                    }
+                    children.add(child);
+                    return;
+                }
+                mayInterruptIfRunning = interruptChildren;
+            }
+            child.cancel(mayInterruptIfRunning);
+        }
     }
 
     private static final class UtilsThreadFactory extends AtomicLong
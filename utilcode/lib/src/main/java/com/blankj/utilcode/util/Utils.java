@@ -20,6 +20,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * <pre>
@@ -358,6 +359,89 @@ public final class Utils {
         }
     }
 
+    /**
+     * The pool of byte arrays for the copy loops of utils.
+     * <p>The arrays are split into the size classes of power of two, each thread caches one
+     * array of each small class, the others are shared by the bounded queues.</p>
+     */
+    static final class BytePool {
+
+        private static final int MIN_SHIFT        = 10;        // 1KB
+        private static final int MAX_SHIFT        = 20;        // 1MB
+        private static final int MAX_THREAD_SHIFT = 16;        // 64KB
+        private static final int MAX_SHARED_BYTES = 256 * 1024;// of each class
+
+        private static final ThreadLocal<byte[][]> THREAD_CACHE = new ThreadLocal<byte[][]>() {
+            @Override
+            protected byte[][] initialValue() {
+                return new byte[MAX_THREAD_SHIFT - MIN_SHIFT + 1][];
+            }
+        };
+
+        private static final ArrayBlockingQueue<byte[]>[] SHARED = createShared();
+
+        private BytePool() {
+            throw new UnsupportedOperationException("u can't instantiate me...");
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ArrayBlockingQueue<byte[]>[] createShared() {
+            ArrayBlockingQueue<byte[]>[] shared = new ArrayBlockingQueue[MAX_SHIFT - MIN_SHIFT + 1];
+            for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+                shared[shift - MIN_SHIFT] =
+                        new ArrayBlockingQueue<>(Math.max(1, MAX_SHARED_BYTES >> shift));
+            }
+            return shared;
+        }
+
+        /**
+         * Return the array whose length is at least the size, the content is undefined.
+         *
+         * @param size The size.
+         * @return the array whose length is at least the size
+         */
+        static byte[] obtain(final int size) {
+            final int shift = size <= (1 << MIN_SHIFT)
+                    ? MIN_SHIFT
+                    : 32 - Integer.numberOfLeadingZeros(size - 1);
+            if (shift > MAX_SHIFT) return new byte[size];
+            final int index = shift - MIN_SHIFT;
+            if (shift <= MAX_THREAD_SHIFT) {
+                final byte[][] cache = THREAD_CACHE.get();
+                final byte[] buffer = cache[index];
+                if (buffer != null) {
+                    cache[index] = null;
+                    return buffer;
+                }
+            }
+            final byte[] buffer = SHARED[index].poll();
+            return buffer != null ? buffer : new byte[1 << shift];
+        }
+
+        /**
+         * Give back the array which is obtained from the pool, it mustn't be used anymore.
+         *
+         * @param buffer The array.
+         */
+        static void recycle(final byte[] buffer) {
+            if (buffer == null) return;
+            final int len = buffer.length;
+            // it isn't created by the pool
+            if ((len & (len - 1)) != 0) return;
+            final int shift = Integer.numberOfTrailingZeros(len);
+            if (shift < MIN_SHIFT || shift > MAX_SHIFT) return;
+            final int index = shift - MIN_SHIFT;
+            if (shift <= MAX_THREAD_SHIFT) {
+                final byte[][] cache = THREAD_CACHE.get();
+                if (cache[index] == null) {
+                    cache[index] = buffer;
+                    return;
+                }
+            }
+            SHARED[index].offer(buffer);
+        }
+    }
+
     public static final class FileProvider4UtilCode extends FileProvider {
 
         @Override
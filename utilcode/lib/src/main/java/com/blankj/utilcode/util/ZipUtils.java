@@ -1,20 +1,47 @@
 package com.blankj.utilcode.util;
 
+import android.support.annotation.IntRange;
 import android.util.Log;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -30,6 +57,26 @@ public final class ZipUtils {
 
     private static final int BUFFER_LEN = 8192;
 
+    // the entries smaller than it are compressed into memory, others into temporary files
+    private static final long   MEMORY_ENTRY_LIMIT = 1024 * 1024;
+    private static final long   ZIP32_LIMIT        = 0xFFFFFFFFL;
+    private static final int    ZIP32_MAX_ENTRIES  = 0xFFFF;
+    private static final String[] STORED_EXTENSIONS = {
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "mp4", "m4a", "aac", "ogg", "webm", "mkv", "3gp",
+            "zip", "gz", "7z", "rar", "apk", "jar"
+    };
+
+    private static final Map<String, ZipReader> ZIP_READER_CACHE =
+            new LinkedHashMap<String, ZipReader>(4, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ZipReader> eldest) {
+                    if (size() <= 4) return false;
+                    eldest.getValue().release();
+                    return true;
+                }
+            };
+
     private ZipUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
@@ -209,14 +256,18 @@ public final class ZipUtils {
         } else {
             InputStream is = null;
             try {
-                is = new BufferedInputStream(new FileInputStream(srcFile));
+                is = new FileInputStream(srcFile);
                 ZipEntry entry = new ZipEntry(rootPath);
                 entry.setComment(comment);
                 zos.putNextEntry(entry);
-                byte buffer[] = new byte[BUFFER_LEN];
-                int len;
-                while ((len = is.read(buffer, 0, BUFFER_LEN)) != -1) {
-                    zos.write(buffer, 0, len);
+                byte buffer[] = Utils.BytePool.obtain(BUFFER_LEN);
+                try {
+                    int len;
+                    while ((len = is.read(buffer, 0, BUFFER_LEN)) != -1) {
+                        zos.write(buffer, 0, len);
+                    }
+                } finally {
+                    Utils.BytePool.recycle(buffer);
                 }
                 zos.closeEntry();
             } finally {
@@ -228,6 +279,106 @@ public final class ZipUtils {
         return true;
     }
 
+    /**
+     * Zip the files in parallel.
+     * <p>The entries are compressed by the caller and the threads of CPU pool into memory or
+     * temporary files, then they are written into the ZIP file in order.</p>
+     * <p>The entries whose extension is in stored extensions, or which can't be compressed
+     * smaller, are stored without compression. It zips by {@link #zipFiles(Collection, File, String)}
+     * if the ZIP file may need ZIP64.</p>
+     *
+     * @param srcFilePaths     The paths of source files.
+     * @param zipFilePath      The path of ZIP file.
+     * @param comment          The comment.
+     * @param level            The level of compression, from 0 to 9, -1 is the default level.
+     * @param storedExtensions The extensions of files which are stored without compression,
+     *                         {@code null} to use the extensions of compressed media and archives,
+     *                         such as jpg, png, mp4 and zip.
+     * @return {@code true}: success<br>{@code false}: fail
+     * @throws IOException if an I/O error has occurred
+     */
+    public static boolean zipFilesParallel(final Collection<String> srcFilePaths,
+                                           final String zipFilePath,
+                                           final String comment,
+                                           @IntRange(from = -1, to = 9) final int level,
+                                           final Collection<String> storedExtensions)
+            throws IOException {
+        if (srcFilePaths == null || zipFilePath == null) return false;
+        List<File> srcFiles = new ArrayList<>(srcFilePaths.size());
+        for (String srcFilePath : srcFilePaths) {
+            srcFiles.add(getFileByPath(srcFilePath));
+        }
+        return zipFilesParallel(srcFiles, getFileByPath(zipFilePath), comment, level, storedExtensions);
+    }
+
+    /**
+     * Zip the files in parallel.
+     * <p>The entries are compressed by the caller and the threads of CPU pool into memory or
+     * temporary files, then they are written into the ZIP file in order.</p>
+     * <p>The entries whose extension is in stored extensions, or which can't be compressed
+     * smaller, are stored without compression. It zips by {@link #zipFiles(Collection, File, String)}
+     * if the ZIP file may need ZIP64.</p>
+     *
+     * @param srcFiles         The source of files.
+     * @param zipFile          The ZIP file.
+     * @param comment          The comment.
+     * @param level            The level of compression, from 0 to 9, -1 is the default level.
+     * @param storedExtensions The extensions of files which are stored without compression,
+     *                         {@code null} to use the extensions of compressed media and archives,
+     *                         such as jpg, png, mp4 and zip.
+     * @return {@code true}: success<br>{@code false}: fail
+     * @throws IOException if an I/O error has occurred
+     */
+    public static boolean zipFilesParallel(final Collection<File> srcFiles,
+                                           final File zipFile,
+                                           final String comment,
+                                           @IntRange(from = -1, to = 9) final int level,
+                                           final Collection<String> storedExtensions)
+            throws IOException {
+        if (srcFiles == null || zipFile == null) return false;
+        List<ZipSource> sources = new ArrayList<>();
+        for (File srcFile : srcFiles) {
+            if (srcFile == null) return false;
+            collectSources(srcFile, "", sources);
+        }
+        long total = 0;
+        for (ZipSource source : sources) {
+            total += source.length + 128 + source.nameBytes.length;
+        }
+        if (sources.size() > ZIP32_MAX_ENTRIES || total > ZIP32_LIMIT) {
+            return zipFiles(srcFiles, zipFile, comment);
+        }
+        Set<String> extensions = new HashSet<>();
+        if (storedExtensions == null) {
+            Collections.addAll(extensions, STORED_EXTENSIONS);
+        } else {
+            for (String extension : storedExtensions) {
+                extensions.add(extension.toLowerCase(Locale.US));
+            }
+        }
+        if (!createOrExistsFile(zipFile)) return false;
+        new ParallelZipper(sources, level, extensions, zipFile.getParentFile()).zip(zipFile, comment);
+        return true;
+    }
+
+    private static void collectSources(final File srcFile,
+                                       String rootPath,
+                                       final List<ZipSource> sources) throws IOException {
+        rootPath = rootPath + (isSpace(rootPath) ? "" : File.separator) + srcFile.getName();
+        if (srcFile.isDirectory()) {
+            File[] fileList = srcFile.listFiles();
+            if (fileList == null || fileList.length <= 0) {
+                sources.add(new ZipSource(rootPath + '/', null));
+            } else {
+                for (File file : fileList) {
+                    collectSources(file, rootPath, sources);
+                }
+            }
+        } else {
+            sources.add(new ZipSource(rootPath, srcFile));
+        }
+    }
+
     /**
      * Unzip the file.
      *
@@ -285,71 +436,293 @@ public final class ZipUtils {
                                                 final File destDir,
                                                 final String keyword)
             throws IOException {
+        if (isSpace(keyword)) return unzipFileByFilter(zipFile, destDir, null, 1, false);
+        return unzipFileByFilter(zipFile, destDir, new EntryFilter() {
+            @Override
+            public boolean accept(ZipEntry entry) {
+                return entry.getName().contains(keyword);
+            }
+        }, 1, false);
+    }
+
+    /**
+     * Unzip the file by filter.
+     *
+     * @param zipFilePath The path of ZIP file.
+     * @param destDirPath The path of destination directory.
+     * @param filter      The filter of entries, {@code null} to unzip all entries.
+     * @return the unzipped files
+     * @throws IOException if unzip unsuccessfully
+     */
+    public static List<File> unzipFileByFilter(final String zipFilePath,
+                                               final String destDirPath,
+                                               final EntryFilter filter)
+            throws IOException {
+        return unzipFileByFilter(getFileByPath(zipFilePath), getFileByPath(destDirPath), filter);
+    }
+
+    /**
+     * Unzip the file by filter.
+     *
+     * @param zipFile The ZIP file.
+     * @param destDir The destination directory.
+     * @param filter  The filter of entries, {@code null} to unzip all entries.
+     * @return the unzipped files
+     * @throws IOException if unzip unsuccessfully
+     */
+    public static List<File> unzipFileByFilter(final File zipFile,
+                                               final File destDir,
+                                               final EntryFilter filter)
+            throws IOException {
+        return unzipFileByFilter(zipFile, destDir, filter, 1, false);
+    }
+
+    /**
+     * Unzip the file by filter.
+     * <p>The entries are unzipped by the caller and the threads of IO pool.</p>
+     * <p>If skip the unchanged entries, the entry whose file has the same size and CRC-32
+     * in destination directory won't be rewritten, but it's still in the unzipped files.</p>
+     *
+     * @param zipFile           The ZIP file.
+     * @param destDir           The destination directory.
+     * @param filter            The filter of entries, {@code null} to unzip all entries.
+     * @param parallelism       The count of threads which unzip at the same time.
+     * @param isSkipUnchanged   True to skip the unchanged entries, false otherwise.
+     * @return the unzipped files in the order of entries
+     * @throws IOException if unzip unsuccessfully
+     */
+    public static List<File> unzipFileByFilter(final File zipFile,
+                                               final File destDir,
+                                               final EntryFilter filter,
+                                               @IntRange(from = 1) final int parallelism,
+                                               final boolean isSkipUnchanged)
+            throws IOException {
         if (zipFile == null || destDir == null) return null;
-        List<File> files = new ArrayList<>();
         ZipFile zip = new ZipFile(zipFile);
-        Enumeration<?> entries = zip.entries();
         try {
-            if (isSpace(keyword)) {
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = ((ZipEntry) entries.nextElement());
-                    String entryName = entry.getName();
-                    if (entryName.contains("../")) {
-                        Log.e("ZipUtils", "entryName: " + entryName + " is dangerous!");
-                        continue;
-                    }
-                    if (!unzipChildFile(destDir, files, zip, entry, entryName)) return files;
+            List<ZipEntry> selected = new ArrayList<>();
+            Enumeration<?> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = ((ZipEntry) entries.nextElement());
+                String entryName = entry.getName();
+                if (entryName.contains("../")) {
+                    Log.e("ZipUtils", "entryName: " + entryName + " is dangerous!");
+                    continue;
                 }
-            } else {
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = ((ZipEntry) entries.nextElement());
-                    String entryName = entry.getName();
-                    if (entryName.contains("../")) {
-                        Log.e("ZipUtils", "entryName: " + entryName + " is dangerous!");
-                        continue;
-                    }
-                    if (entryName.contains(keyword)) {
-                        if (!unzipChildFile(destDir, files, zip, entry, entryName)) return files;
+                if (filter == null || filter.accept(entry)) {
+                    selected.add(entry);
+                }
+            }
+            return new Unzipper(zip, destDir, selected, isSkipUnchanged).unzip(parallelism);
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * Return the filter of entries which match the glob.
+     * <p>{@code *} matches any characters except '/', {@code **} matches any characters,
+     * {@code ?} matches one character except '/', such as {@code assets/**}{@code /*.png}.</p>
+     *
+     * @param glob The glob.
+     * @return the filter of entries which match the glob
+     */
+    public static EntryFilter getGlobFilter(final String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, len = glob.length(); i < len; i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < len && glob.charAt(i + 1) == '*') {
+                    i++;
+                    // "**/" matches zero or more directories
+                    if (i + 1 < len && glob.charAt(i + 1) == '/') {
+                        i++;
+                        sb.append("(?:.*/)?");
+                    } else {
+                        sb.append(".*");
                     }
+                } else {
+                    sb.append("[^/]*");
                 }
+            } else if (c == '?') {
+                sb.append("[^/]");
+            } else if ("\\.[]{}()+-^$|".indexOf(c) != -1) {
+                sb.append('\\').append(c);
+            } else {
+                sb.append(c);
+            }
+        }
+        return getRegexFilter(sb.toString());
+    }
+
+    /**
+     * Return the filter of entries whose whole name matches the regex.
+     *
+     * @param regex The regex.
+     * @return the filter of entries whose whole name matches the regex
+     */
+    public static EntryFilter getRegexFilter(final String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        return new EntryFilter() {
+            @Override
+            public boolean accept(ZipEntry entry) {
+                return pattern.matcher(entry.getName()).matches();
+            }
+        };
+    }
+
+    /**
+     * Unzip the entry to the output stream.
+     * <p>The output stream won't be closed.</p>
+     *
+     * @param zipFilePath The path of ZIP file.
+     * @param entryName   The name of entry.
+     * @param os          The output stream.
+     * @return {@code true}: success<br>{@code false}: fail
+     * @throws IOException if unzip unsuccessfully
+     */
+    public static boolean unzipEntry2Stream(final String zipFilePath,
+                                            final String entryName,
+                                            final OutputStream os)
+            throws IOException {
+        return unzipEntry2Stream(getFileByPath(zipFilePath), entryName, os);
+    }
+
+    /**
+     * Unzip the entry to the output stream.
+     * <p>The output stream won't be closed.</p>
+     *
+     * @param zipFile   The ZIP file.
+     * @param entryName The name of entry.
+     * @param os        The output stream.
+     * @return {@code true}: success<br>{@code false}: fail
+     * @throws IOException if unzip unsuccessfully
+     */
+    public static boolean unzipEntry2Stream(final File zipFile,
+                                            final String entryName,
+                                            final OutputStream os)
+            throws IOException {
+        if (zipFile == null || entryName == null || os == null) return false;
+        ZipFile zip = new ZipFile(zipFile);
+        InputStream is = null;
+        byte[] buffer = Utils.BytePool.obtain(BUFFER_LEN);
+        try {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) return false;
+            is = zip.getInputStream(entry);
+            int len;
+            while ((len = is.read(buffer, 0, BUFFER_LEN)) != -1) {
+                os.write(buffer, 0, len);
             }
+            return true;
         } finally {
+            Utils.BytePool.recycle(buffer);
+            if (is != null) {
+                is.close();
+            }
+            zip.close();
+        }
+    }
+
+    /**
+     * Unzip the entry to the byte buffer.
+     * <p>The bytes are put from the position of buffer, and the position is advanced.</p>
+     *
+     * @param zipFilePath The path of ZIP file.
+     * @param entryName   The name of entry.
+     * @param buffer      The byte buffer.
+     * @return the length of bytes, -1 if the entry doesn't exist
+     * @throws IOException if unzip unsuccessfully or the buffer is too small
+     */
+    public static int unzipEntry2ByteBuffer(final String zipFilePath,
+                                            final String entryName,
+                                            final ByteBuffer buffer)
+            throws IOException {
+        return unzipEntry2ByteBuffer(getFileByPath(zipFilePath), entryName, buffer);
+    }
+
+    /**
+     * Unzip the entry to the byte buffer.
+     * <p>The bytes are put from the position of buffer, and the position is advanced.</p>
+     *
+     * @param zipFile   The ZIP file.
+     * @param entryName The name of entry.
+     * @param buffer    The byte buffer.
+     * @return the length of bytes, -1 if the entry doesn't exist
+     * @throws IOException if unzip unsuccessfully or the buffer is too small
+     */
+    public static int unzipEntry2ByteBuffer(final File zipFile,
+                                            final String entryName,
+                                            final ByteBuffer buffer)
+            throws IOException {
+        if (zipFile == null || entryName == null || buffer == null) return -1;
+        ZipFile zip = new ZipFile(zipFile);
+        InputStream is = null;
+        try {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) return -1;
+            if (entry.getSize() > buffer.remaining()) {
+                throw new IOException("buffer remains " + buffer.remaining()
+                        + " bytes, but the entry has " + entry.getSize() + " bytes");
+            }
+            is = zip.getInputStream(entry);
+            return readFully(is, buffer);
+        } finally {
+            if (is != null) {
+                is.close();
+            }
             zip.close();
         }
-        return files;
     }
 
-    private static boolean unzipChildFile(final File destDir,
-                                          final List<File> files,
-                                          final ZipFile zip,
-                                          final ZipEntry entry,
-                                          final String name) throws IOException {
-        File file = new File(destDir, name);
-        files.add(file);
-        if (entry.isDirectory()) {
-            return createOrExistsDir(file);
+    private static int readFully(final InputStream is, final ByteBuffer buffer)
+            throws IOException {
+        final int start = buffer.position();
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            int len;
+            while (buffer.hasRemaining()
+                    && (len = is.read(array, offset + buffer.position(), buffer.remaining())) != -1) {
+                buffer.position(buffer.position() + len);
+            }
         } else {
-            if (!createOrExistsFile(file)) return false;
-            InputStream in = null;
-            OutputStream out = null;
+            byte[] bytes = Utils.BytePool.obtain(BUFFER_LEN);
             try {
-                in = new BufferedInputStream(zip.getInputStream(entry));
-                out = new BufferedOutputStream(new FileOutputStream(file));
-                byte buffer[] = new byte[BUFFER_LEN];
                 int len;
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
+                while (buffer.hasRemaining()
+                        && (len = is.read(bytes, 0, Math.min(BUFFER_LEN, buffer.remaining()))) != -1) {
+                    buffer.put(bytes, 0, len);
                 }
             } finally {
-                if (in != null) {
-                    in.close();
-                }
-                if (out != null) {
-                    out.close();
-                }
+                Utils.BytePool.recycle(bytes);
             }
         }
-        return true;
+        if (!buffer.hasRemaining() && is.read() != -1) {
+            throw new IOException("buffer is too small for the entry");
+        }
+        return buffer.position() - start;
+    }
+
+    private static boolean isUnchanged(final File file, final ZipEntry entry) throws IOException {
+        if (entry.getSize() == -1 || entry.getCrc() == -1) return false;
+        if (!file.isFile() || file.length() != entry.getSize()) return false;
+        CRC32 crc = new CRC32();
+        InputStream is = null;
+        byte buffer[] = Utils.BytePool.obtain(BUFFER_LEN);
+        try {
+            is = new FileInputStream(file);
+            int len;
+            while ((len = is.read(buffer, 0, BUFFER_LEN)) != -1) {
+                crc.update(buffer, 0, len);
+            }
+        } finally {
+            Utils.BytePool.recycle(buffer);
+            if (is != null) {
+                is.close();
+            }
+        }
+        return crc.getValue() == entry.getCrc();
     }
 
     /**
@@ -375,18 +748,18 @@ public final class ZipUtils {
             throws IOException {
         if (zipFile == null) return null;
         List<String> paths = new ArrayList<>();
-        ZipFile zip = new ZipFile(zipFile);
-        Enumeration<?> entries = zip.entries();
-        while (entries.hasMoreElements()) {
-            String entryName = ((ZipEntry) entries.nextElement()).getName();
-            if (entryName.contains("../")) {
-                Log.e("ZipUtils", "entryName: " + entryName + " is dangerous!");
-                paths.add(entryName);
-            } else {
+        ZipReader reader = openUncachedZipReader(zipFile);
+        try {
+            for (ZipEntry entry : reader.getEntries()) {
+                String entryName = entry.getName();
+                if (entryName.contains("../")) {
+                    Log.e("ZipUtils", "entryName: " + entryName + " is dangerous!");
+                }
                 paths.add(entryName);
             }
+        } finally {
+            reader.close();
         }
-        zip.close();
         return paths;
     }
 
@@ -413,18 +786,1112 @@ public final class ZipUtils {
             throws IOException {
         if (zipFile == null) return null;
         List<String> comments = new ArrayList<>();
-        ZipFile zip = new ZipFile(zipFile);
-        Enumeration<?> entries = zip.entries();
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = ((ZipEntry) entries.nextElement());
-            comments.add(entry.getComment());
+        ZipReader reader = openUncachedZipReader(zipFile);
+        try {
+            for (ZipEntry entry : reader.getEntries()) {
+                comments.add(entry.getComment());
+            }
+        } finally {
+            reader.close();
         }
-        zip.close();
         return comments;
     }
 
+    /**
+     * Open the reader of ZIP file, which reads the entries without unzipping the file.
+     * <p>The central directory is parsed once and the readers of the last 4 ZIP files are
+     * cached, so opening the same ZIP file again is cheap until the file is changed.
+     * The entry whose CRC-32 doesn't match is thrown as {@link ZipException} at the end
+     * of its stream, in case the file is rewritten in place.</p>
+     * <p>The reader is shared, close it after using, then the file is closed after the
+     * reader is removed from cache.</p>
+     *
+     * @param zipFilePath The path of ZIP file.
+     * @return the reader of ZIP file
+     * @throws IOException if the file isn't a ZIP file or an I/O error has occurred
+     */
+    public static ZipReader openZipReader(final String zipFilePath) throws IOException {
+        return openZipReader(getFileByPath(zipFilePath));
+    }
+
+    /**
+     * Open the reader of ZIP file, which reads the entries without unzipping the file.
+     * <p>The central directory is parsed once and the readers of the last 4 ZIP files are
+     * cached, so opening the same ZIP file again is cheap until the file is changed.
+     * The entry whose CRC-32 doesn't match is thrown as {@link ZipException} at the end
+     * of its stream, in case the file is rewritten in place.</p>
+     * <p>The reader is shared, close it after using, then the file is closed after the
+     * reader is removed from cache.</p>
+     *
+     * @param zipFile The ZIP file.
+     * @return the reader of ZIP file
+     * @throws IOException if the file isn't a ZIP file or an I/O error has occurred
+     */
+    public static ZipReader openZipReader(final File zipFile) throws IOException {
+        if (zipFile == null) throw new FileNotFoundException("zipFile is null");
+        final String key = zipFile.getAbsolutePath();
+        ZipReader reader;
+        synchronized (ZIP_READER_CACHE) {
+            reader = ZIP_READER_CACHE.get(key);
+            if (reader != null) reader.mRefCount++;
+        }
+        if (reader != null) {
+            // check it outside the lock, which reads the file
+            if (reader.isValid()) return reader;
+            synchronized (ZIP_READER_CACHE) {
+                if (ZIP_READER_CACHE.get(key) == reader) {
+                    ZIP_READER_CACHE.remove(key);
+                    reader.release();
+                }
+                reader.release();
+            }
+        }
+        // parse it outside the lock, the other ZIP files needn't wait for it
+        reader = new ZipReader(zipFile);
+        synchronized (ZIP_READER_CACHE) {
+            ZipReader old = ZIP_READER_CACHE.put(key, reader);
+            if (old != null) old.release();
+            // one for cache and one for caller
+            reader.mRefCount = 2;
+        }
+        return reader;
+    }
+
+    private static ZipReader openUncachedZipReader(final File zipFile) throws IOException {
+        if (zipFile == null) throw new FileNotFoundException("zipFile is null");
+        // the one-off reading shouldn't keep the file open in cache
+        ZipReader reader = new ZipReader(zipFile);
+        synchronized (ZIP_READER_CACHE) {
+            reader.mRefCount = 1;
+        }
+        return reader;
+    }
+
+    /**
+     * Clear the cache of ZIP readers, the files are closed after their readers are closed.
+     */
+    public static void clearZipReaderCache() {
+        synchronized (ZIP_READER_CACHE) {
+            for (ZipReader reader : ZIP_READER_CACHE.values()) {
+                reader.release();
+            }
+            ZIP_READER_CACHE.clear();
+        }
+    }
+
+    private static final class ZipSource {
+        final String name;
+        final byte[] nameBytes;
+        final File   file;  // null if it's a directory
+        final long   length;
+
+        // the result of compression
+        int                   method = ZipEntry.STORED;
+        long                  crc;
+        long                  size;
+        long                  compressedSize;
+        long                  dosTime;
+        ByteArrayOutputStream data;// the compressed bytes in memory
+        File                  tmpFile;// the compressed bytes in temporary file
+        long                  offset;
+
+        ZipSource(final String name, final File file) throws IOException {
+            this.name = name;
+            this.nameBytes = name.getBytes("UTF-8");
+            this.file = file;
+            this.length = file == null ? 0 : file.length();
+        }
+
+        void release() {
+            data = null;
+            if (tmpFile != null) {
+                if (!tmpFile.delete()) {
+                    Log.e("ZipUtils", "delete " + tmpFile + " failed!");
+                }
+                tmpFile = null;
+            }
+        }
+    }
+
+    /**
+     * The zipper which writes the ZIP format itself, because the entries compressed by other
+     * threads can't be put into {@link ZipOutputStream}.
+     * <p>The workers compress the entries at most a window ahead of the written one, so the
+     * memory and temporary files are bounded, and the caller compresses the entry itself if
+     * no worker has taken it.</p>
+     */
+    private static final class ParallelZipper {
+
+        private static final int FLAG_UTF8 = 0x0800;
+        private static final int VERSION   = 20;
+
+        private final List<ZipSource> mSources;
+        private final int             mLevel;
+        private final Set<String>     mStoredExtensions;
+        private final File            mTmpDir;
+        private final boolean[]       mIsDone;
+        private final int             mWindow;
+
+        private final Object      mLock = new Object();
+        private       int         mNext;
+        private       int         mWritten;
+        private       boolean     mIsStopped;
+        private       IOException mError;
+
+        ParallelZipper(final List<ZipSource> sources,
+                       final int level,
+                       final Set<String> storedExtensions,
+                       final File tmpDir) {
+            mSources = sources;
+            mLevel = level;
+            mStoredExtensions = storedExtensions;
+            mTmpDir = tmpDir;
+            mIsDone = new boolean[sources.size()];
+            mWindow = 2 * Math.max(1, Runtime.getRuntime().availableProcessors());
+        }
+
+        void zip(final File zipFile, final String comment) throws IOException {
+            final int helpers = Math.min(Runtime.getRuntime().availableProcessors(), mSources.size() - 1);
+            final Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            };
+            for (int i = 0; i < helpers; i++) {
+                try {
+                    ThreadUtils.getCpuPool().execute(worker);
+                } catch (RejectedExecutionException ignore) {
+                    // the caller compresses the rest
+                    break;
+                }
+            }
+            final byte[] commentBytes = comment == null ? new byte[0] : comment.getBytes("UTF-8");
+            OutputStream os = null;
+            try {
+                os = new BufferedOutputStream(new FileOutputStream(zipFile), 64 * 1024);
+                long offset = 0;
+                for (int i = 0, size = mSources.size(); i < size; i++) {
+                    final ZipSource source = mSources.get(i);
+                    boolean isMine = false;
+                    synchronized (mLock) {
+                        while (!mIsDone[i]) {
+                            if (mError != null) throw mError;
+                            if (mNext == i) {
+                                mNext++;
+                                isMine = true;
+                                break;
+                            }
+                            mLock.wait();
+                        }
+                    }
+                    if (isMine) compress(source);
+                    source.offset = offset;
+                    offset += writeLocalEntry(os, source);
+                    source.release();
+                    synchronized (mLock) {
+                        mWritten = i + 1;
+                        mLock.notifyAll();
+                    }
+                }
+                final long centralOffset = offset;
+                for (ZipSource source : mSources) {
+                    offset += writeCentralEntry(os, source, commentBytes);
+                }
+                writeEnd(os, mSources.size(), offset - centralOffset, centralOffset);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("zip is interrupted");
+            } finally {
+                synchronized (mLock) {
+                    mIsStopped = true;
+                    for (int i = mWritten; i < mIsDone.length; i++) {
+                        if (mIsDone[i]) mSources.get(i).release();
+                    }
+                    mLock.notifyAll();
+                }
+                if (os != null) {
+                    os.close();
+                }
+            }
+        }
+
+        private void work() {
+            for (; ; ) {
+                final int index;
+                synchronized (mLock) {
+                    while (!mIsStopped && mNext < mIsDone.length && mNext >= mWritten + mWindow) {
+                        try {
+                            mLock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (mIsStopped || mNext >= mIsDone.length) return;
+                    index = mNext++;
+                }
+                final ZipSource source = mSources.get(index);
+                IOException error = null;
+                try {
+                    compress(source);
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e.toString());
+                }
+                synchronized (mLock) {
+                    if (error != null && mError == null) mError = error;
+                    if (mIsStopped || error != null) {
+                        source.release();
+                    } else {
+                        mIsDone[index] = true;
+                    }
+                    mLock.notifyAll();
+                    if (error != null) return;
+                }
+            }
+        }
+
+        private void compress(final ZipSource source) throws IOException {
+            if (source.file == null) {
+                source.dosTime = javaToDosTime(System.currentTimeMillis());
+                return;
+            }
+            source.dosTime = javaToDosTime(source.file.lastModified());
+            final String name = source.file.getName();
+            final int dot = name.lastIndexOf('.');
+            final String extension = dot == -1 ? "" : name.substring(dot + 1).toLowerCase(Locale.US);
+            if (mLevel == 0 || mStoredExtensions.contains(extension)) {
+                crcFile(source);
+                return;
+            }
+            final CRC32 crc = new CRC32();
+            final Deflater deflater = new Deflater(mLevel, true);
+            final byte[] in = Utils.BytePool.obtain(BUFFER_LEN);
+            final byte[] out = Utils.BytePool.obtain(BUFFER_LEN);
+            InputStream is = null;
+            OutputStream sink = null;
+            try {
+                if (source.length <= MEMORY_ENTRY_LIMIT) {
+                    source.data = new ByteArrayOutputStream((int) Math.max(32, source.length / 2));
+                    sink = source.data;
+                } else {
+                    source.tmpFile = File.createTempFile("zip", ".tmp", mTmpDir);
+                    sink = new FileOutputStream(source.tmpFile);
+                }
+                is = new FileInputStream(source.file);
+                long size = 0;
+                int len;
+                while ((len = is.read(in, 0, BUFFER_LEN)) != -1) {
+                    crc.update(in, 0, len);
+                    size += len;
+                    deflater.setInput(in, 0, len);
+                    while (!deflater.needsInput()) {
+                        int n = deflater.deflate(out, 0, BUFFER_LEN);
+                        if (n > 0) sink.write(out, 0, n);
+                    }
+                }
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(out, 0, BUFFER_LEN);
+                    if (n > 0) sink.write(out, 0, n);
+                }
+                source.crc = crc.getValue();
+                source.size = size;
+                source.compressedSize = deflater.getBytesWritten();
+                source.method = ZipEntry.DEFLATED;
+            } finally {
+                deflater.end();
+                Utils.BytePool.recycle(in);
+                Utils.BytePool.recycle(out);
+                if (is != null) {
+                    is.close();
+                }
+                if (sink != null) {
+                    sink.close();
+                }
+            }
+            // it's larger after compression, then store it
+            if (source.compressedSize >= source.size) {
+                source.release();
+                source.method = ZipEntry.STORED;
+                source.compressedSize = source.size;
+            }
+        }
+
+        private static void crcFile(final ZipSource source) throws IOException {
+            final CRC32 crc = new CRC32();
+            final byte[] buffer = Utils.BytePool.obtain(BUFFER_LEN);
+            InputStream is = null;
+            try {
+                is = new FileInputStream(source.file);
+                long size = 0;
+                int len;
+                while ((len = is.read(buffer, 0, BUFFER_LEN)) != -1) {
+                    crc.update(buffer, 0, len);
+                    size += len;
+                }
+                source.crc = crc.getValue();
+                source.size = size;
+                source.compressedSize = size;
+                source.method = ZipEntry.STORED;
+            } finally {
+                Utils.BytePool.recycle(buffer);
+                if (is != null) {
+                    is.close();
+                }
+            }
+        }
+
+        private static long writeLocalEntry(final OutputStream os, final ZipSource source)
+                throws IOException {
+            writeInt(os, 0x04034b50);
+            writeShort(os, VERSION);
+            writeShort(os, FLAG_UTF8);
+            writeShort(os, source.method);
+            writeInt(os, source.dosTime);
+            writeInt(os, source.crc);
+            writeInt(os, source.compressedSize);
+            writeInt(os, source.size);
+            writeShort(os, source.nameBytes.length);
+            writeShort(os, 0);
+            os.write(source.nameBytes);
+            if (source.data != null) {
+                source.data.writeTo(os);
+            } else if (source.tmpFile != null) {
+                copy(source.tmpFile, os, source.compressedSize);
+            } else if (source.file != null) {
+                copy(source.file, os, source.size);
+            }
+            return 30 + source.nameBytes.length + source.compressedSize;
+        }
+
+        private static long writeCentralEntry(final OutputStream os,
+                                              final ZipSource source,
+                                              final byte[] commentBytes) throws IOException {
+            writeInt(os, 0x02014b50);
+            writeShort(os, VERSION);
+            writeShort(os, VERSION);
+            writeShort(os, FLAG_UTF8);
+            writeShort(os, source.method);
+            writeInt(os, source.dosTime);
+            writeInt(os, source.crc);
+            writeInt(os, source.compressedSize);
+            writeInt(os, source.size);
+            writeShort(os, source.nameBytes.length);
+            writeShort(os, 0);
+            writeShort(os, commentBytes.length);
+            writeShort(os, 0);
+            writeShort(os, 0);
+            writeInt(os, 0);
+            writeInt(os, source.offset);
+            os.write(source.nameBytes);
+            os.write(commentBytes);
+            return 46 + source.nameBytes.length + commentBytes.length;
+        }
+
+        private static void writeEnd(final OutputStream os,
+                                     final int count,
+                                     final long centralSize,
+                                     final long centralOffset) throws IOException {
+            writeInt(os, 0x06054b50);
+            writeShort(os, 0);
+            writeShort(os, 0);
+            writeShort(os, count);
+            writeShort(os, count);
+            writeInt(os, centralSize);
+            writeInt(os, centralOffset);
+            writeShort(os, 0);
+        }
+
+        private static void copy(final File file, final OutputStream os, final long length)
+                throws IOException {
+            final byte[] buffer = Utils.BytePool.obtain(BUFFER_LEN);
+            InputStream is = null;
+            try {
+                is = new FileInputStream(file);
+                long rest = length;
+                while (rest > 0) {
+                    int len = is.read(buffer, 0, (int) Math.min(BUFFER_LEN, rest));
+                    if (len == -1) throw new IOException(file + " is changed while zipping");
+                    os.write(buffer, 0, len);
+                    rest -= len;
+                }
+            } finally {
+                Utils.BytePool.recycle(buffer);
+                if (is != null) {
+                    is.close();
+                }
+            }
+        }
+
+        private static void writeShort(final OutputStream os, final int value) throws IOException {
+            os.write(value & 0xFF);
+            os.write((value >>> 8) & 0xFF);
+        }
+
+        private static void writeInt(final OutputStream os, final long value) throws IOException {
+            os.write((int) (value & 0xFF));
+            os.write((int) ((value >>> 8) & 0xFF));
+            os.write((int) ((value >>> 16) & 0xFF));
+            os.write((int) ((value >>> 24) & 0xFF));
+        }
+
+        private static long javaToDosTime(final long time) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(time);
+            int year = calendar.get(Calendar.YEAR);
+            if (year < 1980) return (1 << 21) | (1 << 16);
+            return (year - 1980) << 25
+                    | (calendar.get(Calendar.MONTH) + 1) << 21
+                    | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                    | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                    | calendar.get(Calendar.MINUTE) << 5
+                    | calendar.get(Calendar.SECOND) >> 1;
+        }
+    }
+
+    /**
+     * The reader of ZIP file, which parses the central directory itself, so an entry is found
+     * by its name in O(1) and read from the file directly.
+     */
+    public static final class ZipReader implements Closeable {
+
+        private static final int  EOCD_SIG        = 0x06054b50;
+        private static final int  EOCD_LEN        = 22;
+        private static final int  ZIP64_EOCD_SIG  = 0x06064b50;
+        private static final int  ZIP64_LOC_SIG   = 0x07064b50;
+        private static final int  CEN_SIG         = 0x02014b50;
+        private static final int  CEN_LEN         = 46;
+        private static final int  LOC_SIG         = 0x04034b50;
+        private static final int  LOC_LEN         = 30;
+        private static final long ZIP32_MAGIC     = 0xFFFFFFFFL;
+
+        private final File                 mFile;
+        private final long                 mLength;
+        private final long                 mLastModified;
+        private final byte[]               mEnd;// the end of central directory till the end of file
+        private final FileChannel          mChannel;
+        private final ZipEntry[]           mEntries;
+        private final long[]               mLocalOffsets;
+        private final long[]               mDataOffsets;// -1 until the local header is read
+        private final Map<String, Integer> mIndexes;
+
+        int mRefCount;// guarded by ZIP_READER_CACHE
+
+        private ZipReader(final File file) throws IOException {
+            mFile = file;
+            mLength = file.length();
+            mLastModified = file.lastModified();
+            mChannel = new RandomAccessFile(file, "r").getChannel();
+            try {
+                // count, offset and size of central directory
+                final long[] end = readEnd();
+                mEnd = read(end[3], (int) (mChannel.size() - end[3])).array();
+                final int count = (int) end[0];
+                final ByteBuffer cen = read(end[1], (int) end[2]);
+                mEntries = new ZipEntry[count];
+                mLocalOffsets = new long[count];
+                mDataOffsets = new long[count];
+                mIndexes = new HashMap<>(count * 4 / 3 + 1);
+                for (int i = 0; i < count; i++) {
+                    readEntry(cen, i);
+                    mDataOffsets[i] = -1;
+                    // the first one wins as ZipFile
+                    if (!mIndexes.containsKey(mEntries[i].getName())) {
+                        mIndexes.put(mEntries[i].getName(), i);
+                    }
+                }
+            } catch (IOException e) {
+                mChannel.close();
+                throw e;
+            } catch (RuntimeException e) {
+                mChannel.close();
+                throw new ZipException("invalid ZIP file: " + e);
+            }
+        }
+
+        /**
+         * Return the ZIP file.
+         *
+         * @return the ZIP file
+         */
+        public File getFile() {
+            return mFile;
+        }
+
+        /**
+         * Return the count of entries.
+         *
+         * @return the count of entries
+         */
+        public int size() {
+            return mEntries.length;
+        }
+
+        /**
+         * Return the entries in the order of central directory.
+         *
+         * @return the entries in the order of central directory
+         */
+        public List<ZipEntry> getEntries() {
+            return Collections.unmodifiableList(Arrays.asList(mEntries));
+        }
+
+        /**
+         * Return the entry.
+         *
+         * @param name The name of entry.
+         * @return the entry, {@code null} if it doesn't exist
+         */
+        public ZipEntry getEntry(final String name) {
+            Integer index = mIndexes.get(name);
+            return index == null ? null : mEntries[index];
+        }
+
+        /**
+         * Return the input stream of entry.
+         * <p>The streams of entries can be read by threads at the same time.</p>
+         *
+         * @param name The name of entry.
+         * @return the input stream of entry, {@code null} if it doesn't exist
+         * @throws IOException if an I/O error has occurred
+         */
+        public InputStream getInputStream(final String name) throws IOException {
+            Integer index = mIndexes.get(name);
+            if (index == null) return null;
+            final ZipEntry entry = mEntries[index];
+            final long offset = getDataOffset(index);
+            final InputStream is;
+            if (entry.getMethod() == ZipEntry.STORED) {
+                is = new EntryInputStream(mChannel, offset, entry.getSize(), false);
+            } else if (entry.getMethod() == ZipEntry.DEFLATED) {
+                // the inflater of "nowrap" needs a dummy byte at the end
+                InputStream raw = new EntryInputStream(mChannel, offset, entry.getCompressedSize(), true);
+                int size = (int) Math.max(64, Math.min(BUFFER_LEN, entry.getCompressedSize() + 1));
+                is = new InflaterInputStream(raw, new Inflater(true), size) {
+                    private boolean mIsClosed;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (mIsClosed) return;
+                        mIsClosed = true;
+                        inf.end();
+                        super.close();
+                    }
+                };
+            } else {
+                throw new ZipException("unsupported method " + entry.getMethod() + " of " + name);
+            }
+            if (entry.getCrc() == -1 || entry.getSize() == -1) return is;
+            return new CrcInputStream(is, entry);
+        }
+
+        /**
+         * Return the bytes of entry.
+         *
+         * @param name The name of entry.
+         * @return the bytes of entry, {@code null} if it doesn't exist
+         * @throws IOException if an I/O error has occurred
+         */
+        public byte[] readEntry2Bytes(final String name) throws IOException {
+            ZipEntry entry = getEntry(name);
+            if (entry == null) return null;
+            if (entry.getSize() > Integer.MAX_VALUE) {
+                throw new IOException(name + " is too large to read into bytes");
+            }
+            byte[] bytes = new byte[(int) entry.getSize()];
+            InputStream is = getInputStream(name);
+            try {
+                int off = 0;
+                int len;
+                while (off < bytes.length && (len = is.read(bytes, off, bytes.length - off)) != -1) {
+                    off += len;
+                }
+                if (off < bytes.length) throw new EOFException(name + " is truncated");
+            } finally {
+                is.close();
+            }
+            return bytes;
+        }
+
+        /**
+         * Return the mapped byte buffer of entry which is stored without compression.
+         * <p>It needn't copy the bytes of entry, such as the images and media in APK.</p>
+         *
+         * @param name The name of entry.
+         * @return the mapped byte buffer of entry, {@code null} if it doesn't exist or it's compressed
+         * @throws IOException if an I/O error has occurred
+         */
+        public MappedByteBuffer getMappedEntry(final String name) throws IOException {
+            Integer index = mIndexes.get(name);
+            if (index == null || mEntries[index].getMethod() != ZipEntry.STORED) return null;
+            return mChannel.map(FileChannel.MapMode.READ_ONLY, getDataOffset(index), mEntries[index].getSize());
+        }
+
+        /**
+         * Close the reader, the file is closed after the reader is removed from cache.
+         */
+        @Override
+        public void close() {
+            synchronized (ZIP_READER_CACHE) {
+                release();
+            }
+        }
+
+        boolean isValid() {
+            // the channel is closed if a thread is interrupted while reading it
+            if (!mChannel.isOpen()
+                    || mFile.length() != mLength || mFile.lastModified() != mLastModified) {
+                return false;
+            }
+            // the file may be rewritten or replaced with the same length and time,
+            // so check the end of central directory which locates the entries
+            RandomAccessFile raf = null;
+            try {
+                raf = new RandomAccessFile(mFile, "r");
+                byte[] end = new byte[mEnd.length];
+                raf.seek(mLength - end.length);
+                raf.readFully(end);
+                return Arrays.equals(end, mEnd);
+            } catch (IOException e) {
+                return false;
+            } finally {
+                if (raf != null) {
+                    try {
+                        raf.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        // guarded by ZIP_READER_CACHE
+        void release() {
+            if (mRefCount <= 0) return;
+            if (--mRefCount == 0) {
+                try {
+                    mChannel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private long[] readEnd() throws IOException {
+            final long size = mChannel.size();
+            final int tailLen = (int) Math.min(size, EOCD_LEN + 0xFFFF);
+            final ByteBuffer tail = read(size - tailLen, tailLen);
+            int eocd = -1;
+            for (int i = tailLen - EOCD_LEN; i >= 0; i--) {
+                // the comment of ZIP file is at the end
+                if (tail.getInt(i) == EOCD_SIG && i + EOCD_LEN + (tail.getShort(i + 20) & 0xFFFF) == tailLen) {
+                    eocd = i;
+                    break;
+                }
+            }
+            if (eocd == -1) throw new ZipException("not a ZIP file: " + mFile);
+            long count = tail.getShort(eocd + 10) & 0xFFFF;
+            long cenSize = tail.getInt(eocd + 12) & ZIP32_MAGIC;
+            long cenOffset = tail.getInt(eocd + 16) & ZIP32_MAGIC;
+            final long eocdOffset = size - tailLen + eocd;
+            long endOffset = eocdOffset;
+            if ((count == 0xFFFF || cenSize == ZIP32_MAGIC || cenOffset == ZIP32_MAGIC) && eocdOffset >= 20) {
+                ByteBuffer locator = read(eocdOffset - 20, 20);
+                if (locator.getInt(0) == ZIP64_LOC_SIG) {
+                    ByteBuffer zip64 = read(locator.getLong(8), 56);
+                    if (zip64.getInt(0) != ZIP64_EOCD_SIG) throw new ZipException("invalid ZIP64 end");
+                    count = zip64.getLong(32);
+                    cenSize = zip64.getLong(40);
+                    cenOffset = zip64.getLong(48);
+                    endOffset = locator.getLong(8);
+                }
+            }
+            // each entry takes CEN_LEN bytes at least, so the corrupt count can't allocate too much
+            if (count < 0 || cenSize < 0 || cenOffset < 0
+                    || cenSize > Integer.MAX_VALUE || count * CEN_LEN > cenSize
+                    || cenOffset + cenSize > size) {
+                throw new ZipException("invalid central directory of " + mFile);
+            }
+            if (endOffset < 0 || endOffset > eocdOffset || eocdOffset - endOffset > 0xFFFF) {
+                throw new ZipException("invalid ZIP64 end of " + mFile);
+            }
+            return new long[]{count, cenOffset, cenSize, endOffset};
+        }
+
+        private void readEntry(final ByteBuffer cen, final int index) throws IOException {
+            final int pos = cen.position();
+            if (cen.getInt(pos) != CEN_SIG) throw new ZipException("invalid central directory of " + mFile);
+            final int flag = cen.getShort(pos + 8) & 0xFFFF;
+            final int method = cen.getShort(pos + 10) & 0xFFFF;
+            final long dosTime = cen.getInt(pos + 12) & ZIP32_MAGIC;
+            final long crc = cen.getInt(pos + 16) & ZIP32_MAGIC;
+            long compressedSize = cen.getInt(pos + 20) & ZIP32_MAGIC;
+            long size = cen.getInt(pos + 24) & ZIP32_MAGIC;
+            final int nameLen = cen.getShort(pos + 28) & 0xFFFF;
+            final int extraLen = cen.getShort(pos + 30) & 0xFFFF;
+            final int commentLen = cen.getShort(pos + 32) & 0xFFFF;
+            long localOffset = cen.getInt(pos + 42) & ZIP32_MAGIC;
+            final byte[] array = cen.array();
+            final int nameStart = cen.arrayOffset() + pos + CEN_LEN;
+            final String name = new String(array, nameStart, nameLen, "UTF-8");
+            // the values of ZIP64 are in extra field in order when they are 0xFFFFFFFF
+            int extra = pos + CEN_LEN + nameLen;
+            final int extraEnd = extra + extraLen;
+            while (extra + 4 <= extraEnd) {
+                final int id = cen.getShort(extra) & 0xFFFF;
+                final int len = cen.getShort(extra + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (size == ZIP32_MAGIC && field + 8 <= extra + 4 + len) {
+                        size = cen.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP32_MAGIC && field + 8 <= extra + 4 + len) {
+                        compressedSize = cen.getLong(field);
+                        field += 8;
+                    }
+                    if (localOffset == ZIP32_MAGIC && field + 8 <= extra + 4 + len) {
+                        localOffset = cen.getLong(field);
+                    }
+                    break;
+                }
+                extra += 4 + len;
+            }
+            ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(method);
+            entry.setTime(dosToJavaTime(dosTime));
+            entry.setCrc(crc);
+            entry.setSize(size);
+            entry.setCompressedSize(compressedSize);
+            if (commentLen > 0) {
+                entry.setComment(new String(array, nameStart + nameLen + extraLen, commentLen, "UTF-8"));
+            }
+            if ((flag & 1) != 0) {
+                Log.e("ZipUtils", "entryName: " + name + " is encrypted!");
+            }
+            mEntries[index] = entry;
+            mLocalOffsets[index] = localOffset;
+            cen.position(extraEnd + commentLen);
+        }
+
+        private long getDataOffset(final int index) throws IOException {
+            synchronized (mDataOffsets) {
+                if (mDataOffsets[index] != -1) return mDataOffsets[index];
+            }
+            final long localOffset = mLocalOffsets[index];
+            final ByteBuffer local = read(localOffset, LOC_LEN);
+            if (local.getInt(0) != LOC_SIG) {
+                throw new ZipException("invalid local header of " + mEntries[index].getName());
+            }
+            // the extra field of local header may be different from central directory's
+            final long offset = localOffset + LOC_LEN
+                    + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+            synchronized (mDataOffsets) {
+                mDataOffsets[index] = offset;
+            }
+            return offset;
+        }
+
+        private ByteBuffer read(final long position, final int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(buffer, position);
+            buffer.flip();
+            return buffer;
+        }
+
+        private void readFully(final ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int len = mChannel.read(buffer, position);
+                if (len == -1) throw new EOFException(mFile + " is truncated");
+                position += len;
+            }
+        }
+
+        private static long dosToJavaTime(final long dosTime) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set((int) ((dosTime >> 25) & 0x7F) + 1980,
+                    (int) ((dosTime >> 21) & 0x0F) - 1,
+                    (int) ((dosTime >> 16) & 0x1F),
+                    (int) ((dosTime >> 11) & 0x1F),
+                    (int) ((dosTime >> 5) & 0x3F),
+                    (int) ((dosTime << 1) & 0x3E));
+            return calendar.getTimeInMillis();
+        }
+    }
+
+    /**
+     * The input stream of entry, which reads the file by position, so the streams of entries
+     * needn't share the file pointer.
+     */
+    private static final class EntryInputStream extends InputStream {
+
+        private final FileChannel mChannel;
+        private       long        mPosition;
+        private       long        mRemaining;
+        private       boolean     mHasDummy;
+
+        EntryInputStream(final FileChannel channel,
+                         final long position,
+                         final long length,
+                         final boolean hasDummy) {
+            mChannel = channel;
+            mPosition = position;
+            mRemaining = length;
+            mHasDummy = hasDummy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) return 0;
+            if (mRemaining <= 0) {
+                if (!mHasDummy) return -1;
+                mHasDummy = false;
+                b[off] = 0;
+                return 1;
+            }
+            int n = mChannel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, mRemaining)), mPosition);
+            if (n == -1) throw new EOFException("the entry is truncated");
+            mPosition += n;
+            mRemaining -= n;
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            long skipped = Math.max(0, Math.min(n, mRemaining));
+            mPosition += skipped;
+            mRemaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, mRemaining);
+        }
+    }
+
+    /**
+     * The input stream which checks the CRC-32 of entry after its last byte is read.
+     */
+    private static final class CrcInputStream extends FilterInputStream {
+
+        private final CRC32   mCrc = new CRC32();
+        private final String  mName;
+        private final long    mExpectedCrc;
+        private       long    mRemaining;
+        private       boolean mIsSkipped;
+
+        CrcInputStream(final InputStream in, final ZipEntry entry) {
+            super(in);
+            mName = entry.getName();
+            mExpectedCrc = entry.getCrc();
+            mRemaining = entry.getSize();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = in.read(b, off, len);
+            if (mIsSkipped) return n;
+            if (n > 0) {
+                mCrc.update(b, off, n);
+                mRemaining -= n;
+                if (mRemaining < 0 || (mRemaining == 0 && mCrc.getValue() != mExpectedCrc)) {
+                    throw new ZipException("invalid CRC-32 of " + mName + ", the file may be changed");
+                }
+            } else if (n == -1 && mRemaining > 0) {
+                throw new EOFException(mName + " is truncated");
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            // the skipped bytes aren't checked, so give up checking
+            mIsSkipped = true;
+            return in.skip(n);
+        }
+    }
+
+    /**
+     * The unzipper which unzips the entries by the caller and the threads of IO pool.
+     * <p>{@link ZipFile} can be read by threads at the same time, so the entries are
+     * inflated and written in parallel.</p>
+     */
+    private static final class Unzipper {
+
+        private final ZipFile        mZip;
+        private final File           mDestDir;
+        private final List<ZipEntry> mEntries;
+        private final boolean        mIsSkipUnchanged;
+
+        private final Object           mLock = new Object();
+        private       int              mNext;
+        private       int              mActive;
+        private       int              mFailedIndex;
+        private       IOException      mError;
+        private       volatile boolean mIsCancelled;
+
+        Unzipper(final ZipFile zip,
+                 final File destDir,
+                 final List<ZipEntry> entries,
+                 final boolean isSkipUnchanged) {
+            mZip = zip;
+            mDestDir = destDir;
+            mEntries = entries;
+            mIsSkipUnchanged = isSkipUnchanged;
+            mFailedIndex = entries.size();
+        }
+
+        List<File> unzip(final int parallelism) throws IOException {
+            final int helpers = Math.min(parallelism, mEntries.size()) - 1;
+            final Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            };
+            for (int i = 0; i < helpers; i++) {
+                try {
+                    ThreadUtils.getIoPool().execute(worker);
+                } catch (RejectedExecutionException ignore) {
+                    // the caller unzips the rest
+                    break;
+                }
+            }
+            work();
+            boolean isInterrupted = false;
+            synchronized (mLock) {
+                // the zip is closed after return, so wait for the workers even if interrupted
+                while (mActive > 0) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        isInterrupted = true;
+                        mIsCancelled = true;
+                    }
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("unzip is interrupted");
+            }
+            synchronized (mLock) {
+                if (mError != null) throw mError;
+            }
+            // as the serial unzip, the failed file is the last one
+            final int count = Math.min(mFailedIndex + 1, mEntries.size());
+            List<File> files = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                files.add(new File(mDestDir, mEntries.get(i).getName()));
+            }
+            return files;
+        }
+
+        private void work() {
+            for (; ; ) {
+                final int index;
+                synchronized (mLock) {
+                    if (Thread.currentThread().isInterrupted() && mError == null) {
+                        mError = new InterruptedIOException("unzip is interrupted");
+                        mIsCancelled = true;
+                    }
+                    if (mNext >= mEntries.size() || mNext > mFailedIndex || mError != null) return;
+                    index = mNext++;
+                    mActive++;
+                }
+                boolean isSuccess = false;
+                IOException error = null;
+                try {
+                    isSuccess = unzipChildFile(mEntries.get(index));
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                }
+                synchronized (mLock) {
+                    mActive--;
+                    if (error != null) {
+                        if (mError == null) mError = error;
+                        // cut short the entries of others
+                        mIsCancelled = true;
+                    } else if (!isSuccess && index < mFailedIndex) {
+                        mFailedIndex = index;
+                    }
+                    mLock.notifyAll();
+                }
+            }
+        }
+
+        private boolean unzipChildFile(final ZipEntry entry) throws IOException {
+            File file = new File(mDestDir, entry.getName());
+            if (entry.isDirectory()) {
+                return createOrExistsDir(file);
+            } else {
+                if (mIsSkipUnchanged && isUnchanged(file, entry)) return true;
+                if (!createOrExistsFile(file)) return false;
+                InputStream in = null;
+                OutputStream out = null;
+                byte buffer[] = Utils.BytePool.obtain(BUFFER_LEN);
+                boolean isDone = false;
+                try {
+                    in = mZip.getInputStream(entry);
+                    out = new FileOutputStream(file);
+                    int len;
+                    while ((len = in.read(buffer, 0, BUFFER_LEN)) != -1) {
+                        if (mIsCancelled || Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("unzip is interrupted");
+                        }
+                        out.write(buffer, 0, len);
+                    }
+                    isDone = true;
+                } finally {
+                    Utils.BytePool.recycle(buffer);
+                    if (in != null) {
+                        in.close();
+                    }
+                    if (out != null) {
+                        out.close();
+                    }
+                    // the file cut short isn't an unzipped one
+                    if (!isDone) file.delete();
+                }
+            }
+            return true;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // interface
+    ///////////////////////////////////////////////////////////////////////////
+
+    public interface EntryFilter {
+        /**
+         * Return whether the entry should be unzipped.
+         *
+         * @param entry The entry of ZIP file.
+         * @return {@code true}: yes<br>{@code false}: no
+         */
+        boolean accept(ZipEntry entry);
+    }
+
     private static boolean createOrExistsDir(final File file) {
-        return file != null && (file.exists() ? file.isDirectory() : file.mkdirs());
+        // the directory may be made by another thread at the same time
+        return file != null && (file.exists() ? file.isDirectory() : file.mkdirs() || file.isDirectory());
     }
 
     private static boolean createOrExistsFile(final File file) {
@@ -432,7 +1899,7 @@ public final class ZipUtils {
         if (file.exists()) return file.isFile();
         if (!createOrExistsDir(file.getParentFile())) return false;
         try {
-            return file.createNewFile();
+            return file.createNewFile() || file.isFile();
         } catch (IOException e) {
             e.printStackTrace();
             return false;
@@ -0,0 +1,94 @@
+package com.blankj.utilcode.util;
+
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ *     author: Blankj
+ *     blog  : http://blankj.com
+ *     time  : 2026/10/18
+ *     desc  : benchmark of the raw keys and the prepared keys of EncryptUtils
+ * </pre>
+ * <p>It isn't a test since the timing depends on the machine, run its {@link #main} and
+ * compare the ns/op of each pair.</p>
+ */
+public class EncryptUtilsBenchmark {
+
+    private static final int ROUNDS     = 5;
+    private static final int WARMUP     = 2000;
+    private static final int ITERATIONS = 10000;
+
+    // the results go here, so the JIT can't remove the operations
+    private static volatile int sSink;
+
+    public static void main(String[] args) throws Exception {
+        final byte[] data = "BlankjBlankjBlankjBlankj".getBytes();
+        final byte[] key = "blankj".getBytes();
+        final byte[] aesKey = "11111111111111111111111111111111".getBytes();
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        final byte[] rsaKey = generator.generateKeyPair().getPublic().getEncoded();
+        final EncryptUtils.HmacKey preparedHmacKey = EncryptUtils.prepareHmacKey(key, "HmacSHA256");
+        final EncryptUtils.SymmetricKey preparedAesKey = EncryptUtils.prepareAESKey(aesKey, "AES/ECB/PKCS5Padding");
+        final EncryptUtils.RSAKey preparedRsaKey = EncryptUtils.prepareRSAKey(rsaKey, true, "RSA/ECB/PKCS1Padding");
+        benchmark("HmacSHA256 raw key", new Op() {
+            @Override
+            public byte[] run() {
+                return EncryptUtils.encryptHmacSHA256(data, key);
+            }
+        });
+        benchmark("HmacSHA256 prepared key", new Op() {
+            @Override
+            public byte[] run() {
+                return preparedHmacKey.encrypt(data);
+            }
+        });
+        benchmark("AES raw key", new Op() {
+            @Override
+            public byte[] run() {
+                return EncryptUtils.encryptAES(data, aesKey, "AES/ECB/PKCS5Padding", null);
+            }
+        });
+        benchmark("AES prepared key", new Op() {
+            @Override
+            public byte[] run() {
+                return preparedAesKey.encrypt(data, null);
+            }
+        });
+        benchmark("RSA raw key", new Op() {
+            @Override
+            public byte[] run() {
+                return EncryptUtils.encryptRSA(data, rsaKey, true, "RSA/ECB/PKCS1Padding");
+            }
+        });
+        benchmark("RSA prepared key", new Op() {
+            @Override
+            public byte[] run() {
+                return preparedRsaKey.encrypt(data);
+            }
+        });
+    }
+
+    private interface Op {
+        byte[] run();
+    }
+
+    private static void benchmark(final String name, final Op op) {
+        for (int i = 0; i < WARMUP; i++) {
+            sSink += Arrays.hashCode(op.run());
+        }
+        // take the best of rounds, which is the least disturbed by GC and other threads
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            int sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += Arrays.hashCode(op.run());
+            }
+            best = Math.min(best, (System.nanoTime() - start) / ITERATIONS);
+            sSink += sink;
+        }
+        System.out.println(name + ": " + best + " ns/op");
+    }
+}
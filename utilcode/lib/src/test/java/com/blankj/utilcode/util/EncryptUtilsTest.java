@@ -5,11 +5,18 @@ import android.util.Base64;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.util.Arrays;
+import java.util.Random;
 
 import static com.blankj.utilcode.util.TestConfig.PATH_ENCRYPT;
+import static com.blankj.utilcode.util.TestConfig.PATH_TEMP;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 
@@ -69,6 +76,26 @@ public class EncryptUtilsTest extends BaseTest {
         );
     }
 
+    @Test
+    public void encryptSHAFile() {
+        assertEquals(
+                "B773BED04A48DE200B96981BB79467413A222066",
+                EncryptUtils.encryptSHA1File2String(new File(PATH_ENCRYPT + "MD5.txt"))
+        );
+        assertEquals(
+                "642710E2DDB5779E02BF31C75FC2AD8A719075FEDE9AC7123AB97D1B6109FB2A",
+                EncryptUtils.encryptSHA256File2String(new File(PATH_ENCRYPT + "MD5.txt"))
+        );
+    }
+
+    @Test
+    public void encryptFileTreeHash() {
+        assertEquals(
+                "A85454AADBFFD3E13E01534BDA96E01443E6B631C340E435963086980B5AA2EA",
+                EncryptUtils.encryptFileTreeHash2String(new File(PATH_ENCRYPT + "MD5.txt"), "SHA-256", 1)
+        );
+    }
+
     @Test
     public void encryptSHA1() {
         String blankjSHA1 = "C606ACCB1FEB669E19D080ADDDDBB8E6CDA5F43C";
@@ -514,10 +541,84 @@ public class EncryptUtilsTest extends BaseTest {
         );
     }
 
+    @Test
+    public void encryptDecryptAESStream() {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertTrue(EncryptUtils.encryptAES(
+                new ByteArrayInputStream(bytesDataAES), os, bytesKeyAES, "AES/ECB/NoPadding", null
+        ));
+        assertTrue(Arrays.equals(bytesResAES, os.toByteArray()));
+
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        byte[] iv = new byte[12];
+        os.reset();
+        assertTrue(EncryptUtils.encryptAES(
+                new ByteArrayInputStream(data), os, bytesKeyAES, "AES/GCM/NoPadding", iv
+        ));
+        byte[] encrypted = os.toByteArray();
+        assertTrue(Arrays.equals(
+                encrypted,
+                EncryptUtils.encryptAES(data, bytesKeyAES, "AES/GCM/NoPadding", iv)
+        ));
+        os.reset();
+        assertTrue(EncryptUtils.decryptAES(
+                new ByteArrayInputStream(encrypted), os, bytesKeyAES, "AES/GCM/NoPadding", iv
+        ));
+        assertTrue(Arrays.equals(data, os.toByteArray()));
+    }
+
+    @Test
+    public void encryptDecryptAESFile() {
+        FileUtils.createOrExistsDir(PATH_TEMP);
+        File src = new File(PATH_TEMP + "src");
+        File encrypted = new File(PATH_TEMP + "encrypted");
+        File decrypted = new File(PATH_TEMP + "decrypted");
+        // more than a chunk of CTR
+        byte[] data = new byte[3 * 1024 * 1024 + 7];
+        new Random(1).nextBytes(data);
+        byte[] iv = new byte[16];
+        Arrays.fill(iv, (byte) 0xFF);
+        assertTrue(FileIOUtils.writeFileFromBytesByStream(src, data));
+        try {
+            for (String transformation : new String[]{"AES/CTR/NoPadding", "AES/CBC/PKCS5Padding"}) {
+                assertTrue(EncryptUtils.encryptAESFile(src, encrypted, bytesKeyAES, transformation, iv));
+                assertTrue(Arrays.equals(
+                        EncryptUtils.encryptAES(data, bytesKeyAES, transformation, iv),
+                        FileIOUtils.readFile2BytesByStream(encrypted)
+                ));
+                assertTrue(EncryptUtils.decryptAESFile(encrypted, decrypted, bytesKeyAES, transformation, iv));
+                assertTrue(Arrays.equals(data, FileIOUtils.readFile2BytesByStream(decrypted)));
+            }
+            // the plain data isn't padded, the half-written file is deleted
+            assertFalse(EncryptUtils.decryptAESFile(src, decrypted, bytesKeyAES, "AES/CBC/PKCS5Padding", iv));
+            assertFalse(decrypted.exists());
+        } finally {
+            FileUtils.deleteAllInDir(PATH_TEMP);
+        }
+    }
+
     private String publicKey  = "MIGfMA0GCSqGSIb3DQEBAQUAA4GNADCBiQKBgQCWuAuSCrzUXC1l4ixXBeBfotUtkALrAjLM5UHiVfOFHrRJHM41HSeHVm56UZHgJlwk80R8juu1ykuhkgrilTv7H+3MpZdIunvndDElgdgk8aI2Ip4GUlemUDvCtWd3ychWEh4kYQ8CeInQvNM08imoLFldvbjWt/IkGK+BcGzamQIDAQAB";
     private String privateKey = "MIICdgIBADANBgkqhkiG9w0BAQEFAASCAmAwggJcAgEAAoGBAJa4C5IKvNRcLWXiLFcF4F+i1S2QAusCMszlQeJV84UetEkczjUdJ4dWbnpRkeAmXCTzRHyO67XKS6GSCuKVO/sf7cyll0i6e+d0MSWB2CTxojYingZSV6ZQO8K1Z3fJyFYSHiRhDwJ4idC80zTyKagsWV29uNa38iQYr4FwbNqZAgMBAAECgYAxV1k6W1eMMg0OsKeRabQVuwoNG3tJEnQtDdSu0zKg3vdohAyh6MR7EvmiA7g86HH8CsPd/y/9WJe/8j6sBO0Ye9gt7eyQ2NiwWvlTuwNmngcSTapVvVI6NEyJFMfQt9PB1EHLNAXlz8jtJUyA7C48jReQD9p/SzAP0VxG7lwyMQJBAOjE7hAZ/6fyP3DB1fG7jr9gONZcz3TUaqx6BUn4GKZnckW08ht9Xqcqft5Hthu8BbLM9ptQ0U8QZekrJwD6ya0CQQClwstZMPu8jLhsgugVwodcG1mPEOiw9Yjnmt9+WTI07Ll2uFv//hRXBnahBBnZbucUYEbUY3kqUX9b3e9TmEodAkEAybPMbxt4VDoxCy6Mi/pxChkBZ4/pHV3sSiU6bAyWn6vIc+sGWRfca5MBePA/N+1IKtY9Y/02QwL8rH5+P/URyQJAL/hdjORGFdzLimuf6pwvPBKWKncEQCHuisghIZmClBpl2duklELddAnkztg2+tvDd/wcw14+NGb9aoKhvhl2aQJAbvcgoPU+xs0CjeexH+TS2S/jKkTRpvP2CpPK/k71m13xWdE8RtMkYY1measRmlIwOfWze7ll/PGT4dxWf31FNg==";
     private String dataRSA    = "BlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBlankjBla12345678";
 
+    @Test
+    public void encryptDecryptRSANoPadding() {
+        // two blocks of modulus's length, whose values are less than modulus
+        byte[] data = new byte[256];
+        Arrays.fill(data, (byte) 1);
+        byte[] encrypted = EncryptUtils.encryptRSA(data, base64Decode(publicKey.getBytes()), true, "RSA/ECB/NoPadding");
+        assertEquals(256, encrypted.length);
+        assertTrue(Arrays.equals(data, EncryptUtils.decryptRSA(
+                encrypted, base64Decode(privateKey.getBytes()), false, "RSA/ECB/NoPadding"
+        )));
+        // the padding of bare RSA depends on the provider, the data is one block
+        byte[] bare = EncryptUtils.encryptRSA(dataRSA.substring(0, 64).getBytes(),
+                base64Decode(publicKey.getBytes()), true, "RSA");
+        assertTrue(Arrays.equals(dataRSA.substring(0, 64).getBytes(),
+                EncryptUtils.decryptRSA(bare, base64Decode(privateKey.getBytes()), false, "RSA")));
+    }
+
     @Test
     public void encryptDecryptRSA() {
         assertTrue(
@@ -538,6 +639,64 @@ public class EncryptUtilsTest extends BaseTest {
         );
     }
 
+    @Test
+    public void encryptDecryptRSABlocks() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        byte[] data = new byte[1000];
+        new Random(1).nextBytes(data);
+        for (String transformation : new String[]{
+                "RSA/ECB/PKCS1Padding", "RSA/ECB/OAEPWithSHA-256AndMGF1Padding"}) {
+            byte[] encrypted = EncryptUtils.encryptRSA(data, publicKey, true, transformation);
+            assertEquals(0, encrypted.length % 256);
+            assertTrue(Arrays.equals(
+                    data,
+                    EncryptUtils.decryptRSA(encrypted, privateKey, false, transformation)
+            ));
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            assertTrue(EncryptUtils.encryptRSA(
+                    new ByteArrayInputStream(data), os, publicKey, true, transformation
+            ));
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            assertTrue(EncryptUtils.decryptRSA(
+                    new ByteArrayInputStream(os.toByteArray()), decrypted, privateKey, false, transformation
+            ));
+            assertTrue(Arrays.equals(data, decrypted.toByteArray()));
+        }
+    }
+
+    @Test
+    public void preparedKey() {
+        EncryptUtils.HmacKey hmacKey = EncryptUtils.prepareHmacKey("blankj".getBytes(), "HmacSHA256");
+        assertEquals(
+                EncryptUtils.encryptHmacSHA256ToString("blankj".getBytes(), "blankj".getBytes()),
+                hmacKey.encryptToString("blankj".getBytes())
+        );
+
+        EncryptUtils.SymmetricKey aesKey = EncryptUtils.prepareAESKey(bytesKeyAES, "AES/ECB/NoPadding");
+        assertTrue(Arrays.equals(bytesResAES, aesKey.encrypt(bytesDataAES, null)));
+        assertTrue(Arrays.equals(bytesDataAES, aesKey.decrypt(bytesResAES, null)));
+
+        EncryptUtils.RSAKey publicRSAKey = EncryptUtils.prepareRSAKey(
+                base64Decode(publicKey.getBytes()), true, "RSA/ECB/PKCS1Padding"
+        );
+        EncryptUtils.RSAKey privateRSAKey = EncryptUtils.prepareRSAKey(
+                base64Decode(privateKey.getBytes()), false, "RSA/ECB/PKCS1Padding"
+        );
+        assertTrue(Arrays.equals(
+                dataRSA.getBytes(),
+                privateRSAKey.decrypt(publicRSAKey.encrypt(dataRSA.getBytes()))
+        ));
+    }
+
+    /**
+     * Compare the raw key with the prepared key, which parses the key once and reuses
+     * the engines of thread. It only prints the timing, so it's run by hand.
+     */
     private static byte[] base64Encode(final byte[] input) {
         return Base64.encode(input, Base64.NO_WRAP);
     }
@@ -4,7 +4,13 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static com.blankj.utilcode.util.TestConfig.PATH_FILE;
 import static com.blankj.utilcode.util.TestConfig.PATH_TEMP;
@@ -23,6 +29,18 @@ public class FileIOUtilsTest extends BaseTest {
     public void writeFileFromIS() throws Exception {
         Assert.assertTrue(FileIOUtils.writeFileFromIS(PATH_TEMP + "UTF8.txt", new FileInputStream(PATH_FILE + "UTF8.txt"), false));
         Assert.assertTrue(FileIOUtils.writeFileFromIS(PATH_TEMP + "UTF8.txt", new FileInputStream(PATH_FILE + "UTF8.txt"), true));
+        Assert.assertTrue(FileIOUtils.writeFileFromIS(PATH_TEMP + "UTF8.txt", new FileInputStream(PATH_FILE + "UTF8.txt"), false, 3));
+        Assert.assertArrayEquals(FileIOUtils.readFile2BytesByStream(PATH_FILE + "UTF8.txt"),
+                FileIOUtils.readFile2BytesByStream(PATH_TEMP + "UTF8.txt", 5));
+    }
+
+    @Test
+    public void bytePool() {
+        byte[] buffer = Utils.BytePool.obtain(5000);
+        Assert.assertEquals(8192, buffer.length);
+        Utils.BytePool.recycle(buffer);
+        Assert.assertSame(buffer, Utils.BytePool.obtain(8000));
+        Assert.assertEquals(3 << 20, Utils.BytePool.obtain(3 << 20).length);
     }
 
     @Test
@@ -58,6 +76,26 @@ public class FileIOUtilsTest extends BaseTest {
 //        FileUtils.deleteFile(p);
     }
 
+    @Test
+    public void openBatchWriter() {
+        FileIOUtils.BatchWriter writer =
+                FileIOUtils.openBatchWriter(PATH_TEMP + "batch.txt", false, FileIOUtils.FSYNC_ON_CLOSE);
+        Assert.assertNotNull(writer);
+        Assert.assertTrue(writer.write(ByteBuffer.wrap("a".getBytes()), ByteBuffer.wrap("bc".getBytes())));
+        Assert.assertTrue(writer.write("d", null));
+        writer.close();
+        Assert.assertFalse(writer.write("e", null));
+        Assert.assertEquals("abcd", FileIOUtils.readFile2String(PATH_TEMP + "batch.txt"));
+
+        FileIOUtils.WriterStats stats = writer.getStats();
+        Assert.assertEquals(4, stats.getBytes());
+        Assert.assertEquals(3, stats.getBuffers());
+        Assert.assertEquals(2, stats.getBatches());
+        Assert.assertEquals(2, stats.getWrites());
+        Assert.assertEquals(1, stats.getSyncs());
+        Assert.assertEquals(5, stats.getSavedSyscalls());
+    }
+
     @Test
     public void writeFileFromString() {
 
@@ -68,6 +106,123 @@ public class FileIOUtilsTest extends BaseTest {
 
     }
 
+    @Test
+    public void getLineIndex() {
+        Assert.assertTrue(FileIOUtils.writeFileFromString(PATH_TEMP + "lines.txt",
+                "first\nsecond\r\nthird\rfourth\n\nsixth"));
+        List<String> expected = FileIOUtils.readFile2List(PATH_TEMP + "lines.txt");
+        FileIOUtils.LineIndex index = FileIOUtils.getLineIndex(PATH_TEMP + "lines.txt");
+        Assert.assertNotNull(index);
+        Assert.assertEquals(expected.size(), index.getLineCount());
+        Assert.assertEquals(expected, index.readLines(1, index.getLineCount(), null));
+        Assert.assertEquals("fourth", index.readLine(4, null));
+        Assert.assertEquals("", index.readLine(5, null));
+        Assert.assertNull(index.readLine(7, null));
+        Assert.assertEquals(expected.subList(2, 4), FileIOUtils.readFile2List(PATH_TEMP + "lines.txt", 3, 4));
+
+        Assert.assertTrue(FileIOUtils.writeFileFromString(PATH_TEMP + "lines.txt", "seventh", true));
+        Assert.assertFalse(index.isValid());
+        Assert.assertEquals(Arrays.asList("sixthseventh"), FileIOUtils.readFile2List(PATH_TEMP + "lines.txt", 6, 6));
+    }
+
+    @Test
+    public void readFileByLine() {
+        Assert.assertTrue(FileIOUtils.writeFileFromString(PATH_TEMP + "lines.txt",
+                "first\nsecond\r\nthird\rfourth\n\nsixth"));
+        final List<String> lines = new ArrayList<>();
+        Assert.assertEquals(6, FileIOUtils.readFileByLine(PATH_TEMP + "lines.txt", null,
+                new FileIOUtils.OnLineListener() {
+                    @Override
+                    public boolean onLine(int lineNumber, CharSequence line) {
+                        lines.add(line.toString());
+                        return true;
+                    }
+                }));
+        Assert.assertEquals(FileIOUtils.readFile2List(PATH_TEMP + "lines.txt"), lines);
+        Assert.assertEquals(2, FileIOUtils.readFileByLine(PATH_TEMP + "lines.txt", null,
+                new FileIOUtils.OnLineListener() {
+                    @Override
+                    public boolean onLine(int lineNumber, CharSequence line) {
+                        return lineNumber < 2;
+                    }
+                }));
+    }
+
+    @Test
+    public void readFileByLineSurrogate() throws Exception {
+        // the surrogate pair comes when one char is left in the buffer of 8192 chars
+        for (int len = 8188; len <= 8192; len++) {
+            final char[] chars = new char[len];
+            Arrays.fill(chars, 'a');
+            final String first = new String(chars) + "\uD83D\uDE00tail";
+            Assert.assertTrue(FileIOUtils.writeFileFromBytesByStream(PATH_TEMP + "surrogate.txt",
+                    (first + "\nnext\n").getBytes("UTF-8")));
+            final List<String> lines = new ArrayList<>();
+            Assert.assertEquals(2, FileIOUtils.readFileByLine(PATH_TEMP + "surrogate.txt", "UTF-8",
+                    new FileIOUtils.OnLineListener() {
+                        @Override
+                        public boolean onLine(int lineNumber, CharSequence line) {
+                            lines.add(line.toString());
+                            return true;
+                        }
+                    }));
+            Assert.assertEquals(Arrays.asList(first, "next"), lines);
+        }
+    }
+
+    @Test
+    public void readFileByLineGrow() throws Exception {
+        // the long line starts behind the head of the buffer of 8192 chars and overflows it
+        final char[] aChars = new char[8191];
+        Arrays.fill(aChars, 'a');
+        final String first = new String(aChars);
+        final char[] bChars = new char[20000];
+        Arrays.fill(bChars, 'b');
+        final String second = new String(bChars);
+        for (String sep : new String[]{"\n\n", "\r\n"}) {
+            Assert.assertTrue(FileIOUtils.writeFileFromString(PATH_TEMP + "grow.txt",
+                    first + sep + second + "\nend"));
+            final List<String> lines = new ArrayList<>();
+            FileIOUtils.readFileByLine(PATH_TEMP + "grow.txt", "UTF-8",
+                    new FileIOUtils.OnLineListener() {
+                        @Override
+                        public boolean onLine(int lineNumber, CharSequence line) {
+                            lines.add(line.toString());
+                            return true;
+                        }
+                    });
+            if (sep.equals("\n\n")) {
+                Assert.assertEquals(Arrays.asList(first, "", second, "end"), lines);
+            } else {
+                Assert.assertEquals(Arrays.asList(first, second, "end"), lines);
+            }
+        }
+    }
+
+    @Test
+    public void readFileByChunk() {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        long len = FileIOUtils.readFileByChunk(new File(PATH_FILE + "UTF8.txt"), 3,
+                new FileIOUtils.OnChunkListener() {
+                    @Override
+                    public boolean onChunk(long position, byte[] buffer, int length) {
+                        Assert.assertEquals(os.size(), position);
+                        os.write(buffer, 0, length);
+                        return true;
+                    }
+                });
+        byte[] bytes = FileIOUtils.readFile2BytesByStream(PATH_FILE + "UTF8.txt");
+        Assert.assertEquals(bytes.length, len);
+        Assert.assertArrayEquals(bytes, os.toByteArray());
+
+        ByteBuffer buffer = FileIOUtils.readFile2ByteBufferByMap(PATH_FILE + "UTF8.txt");
+        Assert.assertNotNull(buffer);
+        Assert.assertTrue(buffer.isReadOnly());
+        byte[] mapped = new byte[buffer.remaining()];
+        buffer.get(mapped);
+        Assert.assertArrayEquals(bytes, mapped);
+    }
+
     @Test
     public void readFile2String() {
 
@@ -4,6 +4,10 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.blankj.utilcode.util.TestConfig.FILE_SEP;
 import static com.blankj.utilcode.util.TestConfig.PATH_FILE;
@@ -107,6 +111,133 @@ public class FileUtilsTest extends BaseTest {
         assertTrue(FileUtils.deleteDir(PATH_TEMP));
     }
 
+    @Test
+    public void copyFileWithProgress() {
+        final long[] progress = new long[2];
+        assertTrue(FileUtils.copyFile(PATH_FILE + "GBK.txt", PATH_TEMP + "GBK.txt", mListener,
+                new FileUtils.OnProgressListener() {
+                    @Override
+                    public boolean onProgress(long current, long total) {
+                        progress[0] = current;
+                        progress[1] = total;
+                        return true;
+                    }
+                }));
+        assertEquals(FileUtils.getFileLength(PATH_FILE + "GBK.txt"), progress[0]);
+        assertEquals(progress[0], progress[1]);
+        assertFalse(FileUtils.copyFile(PATH_FILE + "GBK.txt", PATH_TEMP + "GBK1.txt", mListener,
+                new FileUtils.OnProgressListener() {
+                    @Override
+                    public boolean onProgress(long current, long total) {
+                        return false;
+                    }
+                }));
+        assertFalse(FileUtils.isFileExists(PATH_TEMP + "GBK1.txt"));
+        assertTrue(FileUtils.deleteDir(PATH_TEMP));
+    }
+
+    @Test
+    public void copyFileTruncated() throws Exception {
+        final File srcFile = new File(PATH_TEMP + "src.bin");
+        assertTrue(FileUtils.createOrExistsFile(srcFile));
+        setLength(srcFile, 20 * 1024 * 1024);
+        // The source shrinks after the first chunk is copied.
+        assertFalse(FileUtils.copyFile(srcFile, new File(PATH_TEMP + "dest.bin"), mListener,
+                new FileUtils.OnProgressListener() {
+                    @Override
+                    public boolean onProgress(long current, long total) {
+                        setLength(srcFile, 1024);
+                        return true;
+                    }
+                }));
+        assertFalse(FileUtils.isFileExists(PATH_TEMP + "dest.bin"));
+        assertTrue(FileUtils.deleteDir(PATH_TEMP));
+    }
+
+    private static void setLength(final File file, final long length) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+            raf.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void parallelDir() {
+        FileUtils.DirResult result = FileUtils.copyDirParallel(
+                FileUtils.getFileByPath(PATH_FILE), FileUtils.getFileByPath(PATH_TEMP), 4, null);
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+        assertEquals(FileUtils.getDirLength(PATH_FILE), result.getLength());
+        assertNull(FileUtils.copyDirParallel(
+                FileUtils.getFileByPath(PATH_FILE), FileUtils.getFileByPath(PATH_FILE + "new Dir"), 4, null));
+
+        result = FileUtils.getDirLengthParallel(FileUtils.getFileByPath(PATH_TEMP), 4, null);
+        assertNotNull(result);
+        assertEquals(FileUtils.getDirLength(PATH_FILE), result.getLength());
+        assertEquals(FileUtils.listFilesInDir(PATH_FILE, true).size(),
+                FileUtils.listFilesInDirParallel(FileUtils.getFileByPath(PATH_TEMP), 4, null).size());
+
+        FileUtils.CancelToken token = new FileUtils.CancelToken();
+        token.cancel();
+        result = FileUtils.deleteDirParallel(FileUtils.getFileByPath(PATH_TEMP), 4, token);
+        assertNotNull(result);
+        assertTrue(result.isCancelled());
+        assertTrue(FileUtils.isDir(PATH_TEMP));
+
+        result = FileUtils.deleteDirParallel(FileUtils.getFileByPath(PATH_TEMP), 4, null);
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+        assertFalse(FileUtils.isFileExists(PATH_TEMP));
+    }
+
+    @Test
+    public void iterateFilesInDir() {
+        int count = 0;
+        for (File file : FileUtils.iterateFilesInDir(FileUtils.getFileByPath(PATH_FILE), true)) {
+            if (++count == 2) break;
+        }
+        assertEquals(2, count);
+        List<File> files = new ArrayList<>();
+        for (File file : FileUtils.iterateFilesInDir(FileUtils.getFileByPath(PATH_FILE), true)) {
+            files.add(file);
+        }
+        assertEquals(FileUtils.listFilesInDir(PATH_FILE, true), files);
+        assertNull(FileUtils.iterateFilesInDir(FileUtils.getFileByPath(PATH_FILE + "UTF8.txt"), true));
+    }
+
+    @Test
+    public void dirScanner() {
+        assertTrue(FileUtils.copyDir(PATH_FILE, PATH_TEMP, mListener));
+        FileUtils.DirScanner scanner = new FileUtils.DirScanner(FileUtils.getFileByPath(PATH_TEMP));
+        FileUtils.DirChanges changes = scanner.scan();
+        assertEquals(FileUtils.listFilesInDirWithFilter(PATH_TEMP, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return pathname.isFile();
+            }
+        }, true).size(), changes.getAdded().size());
+        assertTrue(scanner.scan().isEmpty());
+
+        assertTrue(FileUtils.deleteFile(PATH_TEMP + "GBK.txt"));
+        assertTrue(FileUtils.createOrExistsFile(PATH_TEMP + "new File"));
+        changes = scanner.scan();
+        assertEquals(1, changes.getAdded().size());
+        assertEquals(1, changes.getRemoved().size());
+        assertEquals(0, changes.getChanged().size());
+
+        File snapshot = FileUtils.getFileByPath(PATH_TEMP + "snapshot" + FILE_SEP + "dir.snap");
+        assertTrue(scanner.saveSnapshot(snapshot));
+        FileUtils.DirScanner loaded = new FileUtils.DirScanner(FileUtils.getFileByPath(PATH_TEMP));
+        assertTrue(loaded.loadSnapshot(snapshot));
+        changes = loaded.scan();
+        assertEquals(1, changes.getAdded().size());
+        assertTrue(changes.getAdded().contains(snapshot));
+        assertTrue(FileUtils.deleteDir(PATH_TEMP));
+    }
+
     @Test
     public void moveDir() {
         assertFalse(FileUtils.moveDir(PATH_FILE, PATH_FILE, mListener));
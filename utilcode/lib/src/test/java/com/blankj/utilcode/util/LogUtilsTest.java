@@ -1,10 +1,28 @@
 package com.blankj.utilcode.util;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <pre>
@@ -168,6 +186,314 @@ public class LogUtilsTest extends BaseTest {
         LogUtils.d(MAP);
     }
 
+    @Test
+    public void testFileQueueStats() throws Exception {
+        LogUtils.file("hello");
+        final long enqueued = LogUtils.getFileQueueStats().getEnqueued();
+        for (int i = 0; i < 100; i++) {
+            LogUtils.file("hello " + i);
+        }
+        LogUtils.QueueStats stats = LogUtils.getFileQueueStats();
+        System.out.println(stats);
+        Assert.assertEquals(enqueued + 100, stats.getEnqueued());
+        Assert.assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    public void testLazy() {
+        LogUtils.getConfig().setConsoleFilter(LogUtils.W);
+        final int[] count = {0};
+        LogUtils.ISupplier supplier = new LogUtils.ISupplier() {
+            @Override
+            public Object get() {
+                count[0]++;
+                return "lazy";
+            }
+        };
+        Assert.assertFalse(LogUtils.isLoggable(LogUtils.D));
+        LogUtils.d(supplier);
+        Assert.assertEquals(0, count[0]);
+        Assert.assertTrue(LogUtils.isLoggable(LogUtils.E));
+        LogUtils.e(supplier);
+        Assert.assertEquals(1, count[0]);
+        LogUtils.getConfig().setConsoleFilter(LogUtils.V);
+    }
+
+    @Test
+    public void testSink() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<String> msgs = new CopyOnWriteArrayList<>();
+        LogUtils.ISink sink = new LogUtils.ISink() {
+            @Override
+            public void write(long millis, int type, String tag, String head, String msg) {
+                msgs.add(msg);
+                latch.countDown();
+            }
+        }.setFilter(LogUtils.W);
+        LogUtils.getConfig().addSink(sink);
+        LogUtils.d("debug");
+        LogUtils.w("warn");
+        LogUtils.e("error");
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        LogUtils.getConfig().removeSink(sink);
+        Assert.assertEquals(2, msgs.size());
+        Assert.assertTrue(msgs.get(0).endsWith("warn"));
+        Assert.assertEquals(0, sink.getQueueStats().getDropped());
+    }
+
+    @Test
+    public void testSinkBlock() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(200);
+        LogUtils.ISink sink = new LogUtils.ISink() {
+            @Override
+            public void write(long millis, int type, String tag, String head, String msg) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException ignore) {
+                }
+                latch.countDown();
+            }
+        }.setQueueCapacity(2).setQueueOverflow(LogUtils.OVERFLOW_BLOCK);
+        LogUtils.getConfig().addSink(sink);
+        for (int i = 0; i < 200; i++) {
+            LogUtils.e("block " + i);
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        final LogUtils.QueueStats stats = sink.getQueueStats();
+        LogUtils.getConfig().removeSink(sink);
+        Assert.assertEquals(200, stats.getEnqueued());
+        Assert.assertEquals(0, stats.getDropped());
+    }
+
+    @Test
+    public void testFormatMaxLength() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<String> msgs = new CopyOnWriteArrayList<>();
+        LogUtils.ISink sink = new LogUtils.ISink() {
+            @Override
+            public void write(long millis, int type, String tag, String head, String msg) {
+                msgs.add(msg);
+                latch.countDown();
+            }
+        };
+        LogUtils.getConfig().setFormatMaxLength(32).addSink(sink);
+        LogUtils.json(JSON);
+        LogUtils.xml(XML);
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        LogUtils.getConfig().setFormatMaxLength(64 * 1024).removeSink(sink);
+        Assert.assertTrue(msgs.get(0).startsWith("{\n  \"tools\": ["));
+        Assert.assertTrue(msgs.get(0).endsWith("...(truncated)"));
+        Assert.assertTrue(msgs.get(1).endsWith("...(truncated)"));
+    }
+
+    @Test
+    public void testRing() {
+        LogUtils.getConfig().setRingCapacity(4);
+        for (int i = 0; i < 10; i++) {
+            LogUtils.d("ring " + i);
+        }
+        String logs = LogUtils.getRingLogs();
+        System.out.println(logs);
+        LogUtils.getConfig().setRingCapacity(0);
+        Assert.assertFalse(logs.contains("ring 5"));
+        Assert.assertTrue(logs.contains("ring 6"));
+        Assert.assertTrue(logs.indexOf("ring 6") < logs.indexOf("ring 9"));
+    }
+
+    @Test
+    public void testBinaryFile() throws Exception {
+        final String dir = TestConfig.PATH_TEMP + "log" + TestConfig.FILE_SEP;
+        FileUtils.deleteAllInDir(dir);
+        final SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        final String start = sdf.format(new Date());
+        LogUtils.getConfig().setDir(dir).setLog2FileSwitch(true).setFileCacheSize(0);
+        try {
+            log2File();
+            final String text = waitLog(dir, ".txt");
+            LogUtils.getConfig().setFileFormat(LogUtils.FORMAT_BINARY).setFileDeflateSwitch(true);
+            log2File();
+            // Decode in another time zone, the output should follow the one of text file.
+            final TimeZone timeZone = TimeZone.getDefault();
+            TimeZone.setDefault(TimeZone.getTimeZone(timeZone.getRawOffset() == 0 ? "GMT+08:00" : "GMT"));
+            final String binary;
+            try {
+                binary = waitLog(dir, ".bin");
+            } finally {
+                TimeZone.setDefault(timeZone);
+            }
+            final String end = sdf.format(new Date());
+            System.out.println(binary);
+            final String time = "(?m)^\\d{2}:\\d{2}:\\d{2}";
+            Assert.assertTrue(binary.startsWith("************* Log Head"));
+            // The records of other tests may be still in queue, compare from the first of ours.
+            Assert.assertEquals(fromTagA(text).replaceAll(time, ""), fromTagA(binary).replaceAll(time, ""));
+            Assert.assertTrue(binary.contains("W/tagB"));
+            Assert.assertTrue(binary.contains("line2" + TestConfig.LINE_SEP));
+            if (start.compareTo(end) <= 0) {
+                final int index = binary.indexOf("D/tagA") - 8;
+                final String first = binary.substring(index, index + 8);
+                Assert.assertTrue(first.compareTo(start) >= 0 && first.compareTo(end) <= 0);
+            }
+        } finally {
+            LogUtils.getConfig().setDir((String) null).setLog2FileSwitch(false)
+                    .setFileCacheSize(128 * 1024)
+                    .setFileFormat(LogUtils.FORMAT_TEXT).setFileDeflateSwitch(false);
+            FileUtils.deleteDir(dir);
+        }
+    }
+
+    @Test
+    public void testRotate() throws Exception {
+        final String dir = TestConfig.PATH_TEMP + "log" + TestConfig.FILE_SEP;
+        FileUtils.deleteAllInDir(dir);
+        LogUtils.getConfig().setDir(dir).setLog2FileSwitch(true).setFileCacheSize(0)
+                .setFileMaxSize(4 * 1024).setDirMaxSize(8 * 1024);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                LogUtils.file("rotate " + i);
+            }
+            LogUtils.file("end");
+            final Pattern segmentPattern = Pattern.compile(".*\\.([0-9]+)\\.txt(\\.gz)?$");
+            final TreeMap<Integer, File> segments = new TreeMap<>();
+            File curFile = null;
+            long totalSize = 0;
+            boolean isDone = false;
+            // Wait until the last record is written and all segments are gzipped.
+            for (int i = 0; i < 100 && !isDone; i++) {
+                Thread.sleep(100);
+                segments.clear();
+                curFile = null;
+                totalSize = 0;
+                isDone = true;
+                File[] files = new File(dir).listFiles();
+                if (files == null) continue;
+                for (File file : files) {
+                    totalSize += file.length();
+                    Matcher matcher = segmentPattern.matcher(file.getName());
+                    if (!matcher.matches()) {
+                        curFile = file;
+                        continue;
+                    }
+                    segments.put(Integer.parseInt(matcher.group(1)), file);
+                    isDone &= matcher.group(2) != null;
+                }
+                isDone &= curFile != null && readLog(curFile).contains("end");
+            }
+            Assert.assertTrue(isDone);
+            // The newest segments are kept without a gap.
+            Assert.assertEquals(segments.lastKey() - segments.firstKey() + 1, segments.size());
+            Assert.assertTrue(totalSize <= 8 * 1024 + 4 * 1024);
+            // The records go on from the segment to the next one and end in the current file.
+            final StringBuilder sb = new StringBuilder();
+            for (File segment : segments.values()) {
+                final String log = readLog(segment);
+                Assert.assertTrue(log.endsWith(TestConfig.LINE_SEP));
+                sb.append(log);
+            }
+            sb.append(readLog(curFile));
+            final Matcher matcher = Pattern.compile("rotate ([0-9]+)").matcher(sb);
+            int first = -1;
+            int last = -1;
+            while (matcher.find()) {
+                final int index = Integer.parseInt(matcher.group(1));
+                if (first == -1) {
+                    first = index;
+                } else {
+                    Assert.assertEquals(last + 1, index);
+                }
+                last = index;
+            }
+            // The oldest records are pruned with their segments.
+            Assert.assertTrue(first > 0);
+            Assert.assertEquals(1999, last);
+        } finally {
+            LogUtils.getConfig().setDir((String) null).setLog2FileSwitch(false)
+                    .setFileCacheSize(128 * 1024).setFileMaxSize(0).setDirMaxSize(0);
+            FileUtils.deleteDir(dir);
+        }
+    }
+
+    @Test
+    public void testDeflateBlock() throws Exception {
+        final String dir = TestConfig.PATH_TEMP + "log" + TestConfig.FILE_SEP;
+        FileUtils.deleteAllInDir(dir);
+        LogUtils.getConfig().setDir(dir).setLog2FileSwitch(true).setFileCacheSize(0)
+                .setFileFlushInterval(100);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                LogUtils.file(LogUtils.D, "tagC", "small " + i);
+            }
+            LogUtils.file(LogUtils.D, "tagA", "end");
+            waitLog(dir, ".txt");
+            LogUtils.getConfig().setFileFormat(LogUtils.FORMAT_BINARY).setFileDeflateSwitch(true);
+            // Log slowly, so the queue is drained record by record.
+            for (int i = 0; i < 2000; i++) {
+                LogUtils.file(LogUtils.D, "tagC", "small " + i);
+                if (i % 10 == 0) Thread.sleep(1);
+            }
+            LogUtils.file(LogUtils.D, "tagA", "end");
+            Assert.assertTrue(waitLog(dir, ".bin").contains("small 1999"));
+            long textSize = 0;
+            long binarySize = 0;
+            for (File file : new File(dir).listFiles()) {
+                if (file.getName().endsWith(".txt")) textSize = file.length();
+                if (file.getName().endsWith(".bin")) binarySize = file.length();
+            }
+            // The small records are deflated by block rather than one by one.
+            Assert.assertTrue(textSize + " vs " + binarySize, binarySize * 20 < textSize);
+        } finally {
+            LogUtils.getConfig().setDir((String) null).setLog2FileSwitch(false)
+                    .setFileCacheSize(128 * 1024).setFileFlushInterval(3000)
+                    .setFileFormat(LogUtils.FORMAT_TEXT).setFileDeflateSwitch(false);
+            FileUtils.deleteDir(dir);
+        }
+    }
+
+    private static void log2File() {
+        for (int i = 0; i < 3; i++) {
+            LogUtils.file(LogUtils.D, "tagA", "hello " + i);
+        }
+        LogUtils.file(LogUtils.W, "tagB", "line1\nline2");
+        LogUtils.file(LogUtils.D, "tagA", "end");
+    }
+
+    private static String fromTagA(final String log) {
+        return log.substring(log.lastIndexOf('\n', log.indexOf("D/tagA")) + 1);
+    }
+
+    private static String waitLog(final String dir, final String suffix) throws Exception {
+        String log = "";
+        for (int i = 0; i < 50 && !log.contains("end"); i++) {
+            Thread.sleep(100);
+            File[] files = new File(dir).listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                if (file.getName().endsWith(suffix)) {
+                    log = readLog(file);
+                }
+            }
+        }
+        return log;
+    }
+
+    private static String readLog(final File file) throws IOException {
+        if (file.getName().endsWith(".txt")) {
+            return FileIOUtils.readFile2String(file, "UTF-8");
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final InputStream is = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                os.write(ConvertUtils.inputStream2Bytes(new GZIPInputStream(is)));
+            } else {
+                LogUtils.LogDecoder.decode(is, os);
+            }
+        } finally {
+            is.close();
+        }
+        return os.toString("UTF-8");
+    }
+
     static class Person {
 
         String name;
@@ -1,5 +1,6 @@
 package com.blankj.utilcode.util;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
@@ -364,6 +365,71 @@ public class ThreadUtilsTest extends BaseTest {
         });
     }
 
+    @Test
+    public void cancelWithInterrupt() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final TestTask<String> child = new TestTask<String>(latch) {
+            @Override
+            public String doInBackground() throws Throwable {
+                Thread.sleep(10000);
+                return "child";
+            }
+
+            @Override
+            void onTestSuccess(String result) {
+                Assert.fail("child should be canceled.");
+            }
+        };
+        final TestTask<String> task = new TestTask<String>(latch) {
+            @Override
+            public String doInBackground() throws Throwable {
+                addChild(child);
+                ThreadUtils.executeByIo(child);
+                while (true) {
+                    checkCancelled();
+                    Thread.sleep(100);
+                }
+            }
+
+            @Override
+            void onTestSuccess(String result) {
+                Assert.fail("task should be canceled.");
+            }
+        };
+        ThreadUtils.executeByIo(task);
+        Thread.sleep(500);
+        ThreadUtils.cancel(task, true);
+        Assert.assertTrue(latch.await(1, TimeUnit.SECONDS));
+        Assert.assertTrue(task.isCanceled());
+        Assert.assertTrue(child.isCanceled());
+    }
+
+    @Test
+    public void batchDeliver() throws Exception {
+        ThreadUtils.setDeliver(new ThreadUtils.BatchDeliver());
+        try {
+            asyncTest(100, new TestRunnable<String>() {
+                @Override
+                public void run(final int index, CountDownLatch latch) {
+                    final TestTask<String> task = new TestTask<String>(latch) {
+                        @Override
+                        public String doInBackground() throws Throwable {
+                            return Thread.currentThread() + " :" + index;
+                        }
+
+                        @Override
+                        void onTestSuccess(String result) {
+                            System.out.println(result);
+                        }
+                    };
+                    ThreadUtils.executeByCached(task);
+                }
+            });
+        } finally {
+            ThreadUtils.setDeliver(null);
+        }
+    }
+
     abstract static class TestScheduledTask<T> extends ThreadUtils.Task<T> {
 
         private static final AtomicInteger ATOMIC_INTEGER = new AtomicInteger();
@@ -4,12 +4,29 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
 
+import static com.blankj.utilcode.util.TestConfig.FILE_SEP;
 import static com.blankj.utilcode.util.TestConfig.PATH_TEMP;
 import static com.blankj.utilcode.util.TestConfig.PATH_ZIP;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
 
 /**
  * <pre>
@@ -39,6 +56,25 @@ public class ZipUtilsTest extends BaseTest {
         assertTrue(ZipUtils.zipFiles(files, zipFiles));
     }
 
+    @Test
+    public void zipFilesParallel() throws Exception {
+        List<String> files = new ArrayList<>();
+        files.add(PATH_ZIP + "test.txt");
+        files.add(PATH_ZIP);
+        files.add(PATH_ZIP + "testDir");
+        assertTrue(ZipUtils.zipFilesParallel(files, zipFiles, "测试zip", 9, null));
+        assertEquals(ZipUtils.getFilesPath(zipFile).size() + 2, ZipUtils.getFilesPath(zipFiles).size());
+        assertEquals("测试zip", ZipUtils.getComments(zipFiles).get(0));
+        List<File> unzipFiles = ZipUtils.unzipFile(zipFiles, PATH_TEMP + "parallel");
+        assertEquals(ZipUtils.getFilesPath(zipFiles).size(), unzipFiles.size());
+        File txt = new File(PATH_TEMP + "parallel" + FILE_SEP + "test.txt");
+        assertTrue(Arrays.equals(FileIOUtils.readFile2BytesByStream(PATH_ZIP + "test.txt"),
+                FileIOUtils.readFile2BytesByStream(txt)));
+
+        assertTrue(ZipUtils.zipFilesParallel(files, zipFiles, null, 0, Collections.<String>emptyList()));
+        assertEquals(unzipFiles.size(), ZipUtils.unzipFile(zipFiles, PATH_TEMP + "parallel").size());
+    }
+
     @Test
     public void unzipFile() throws Exception {
         System.out.println(ZipUtils.unzipFile(zipFile, PATH_TEMP));
@@ -49,6 +85,206 @@ public class ZipUtilsTest extends BaseTest {
         System.out.println((ZipUtils.unzipFileByKeyword(zipFile, PATH_TEMP, null)).toString());
     }
 
+    @Test
+    public void unzipFileByFilter() throws Exception {
+        String destDir = PATH_TEMP + "filter";
+        List<File> files = ZipUtils.unzipFileByFilter(new File(zipFile), new File(destDir),
+                ZipUtils.getGlobFilter("zip/**/*.txt"), 4, false);
+        assertEquals(4, files.size());
+        for (File file : files) {
+            assertTrue(file.isFile());
+        }
+        assertEquals(2, ZipUtils.unzipFileByFilter(zipFile, destDir,
+                ZipUtils.getRegexFilter("zip/[^/]*\\.txt")).size());
+
+        File txt = new File(destDir + FILE_SEP + "zip" + FILE_SEP + "test.txt");
+        assertTrue(txt.setLastModified(1000000000000L));
+        assertEquals(files, ZipUtils.unzipFileByFilter(new File(zipFile), new File(destDir),
+                ZipUtils.getGlobFilter("zip/**/*.txt"), 4, true));
+        assertEquals(1000000000000L, txt.lastModified());
+    }
+
+    @Test
+    public void unzipFileInterrupted() throws Exception {
+        final File bigZip = new File(PATH_TEMP + "big.zip");
+        final byte[] bytes = new byte[1024 * 1024];
+        Arrays.fill(bytes, (byte) 'a');
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(bigZip));
+        try {
+            for (int i = 0; i < 8; i++) {
+                zos.putNextEntry(new ZipEntry("big" + i + ".txt"));
+                zos.write(bytes);
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+        final File destDir = new File(PATH_TEMP + "big");
+        Thread.currentThread().interrupt();
+        try {
+            ZipUtils.unzipFileByFilter(bigZip, destDir, null, 4, false);
+            fail();
+        } catch (InterruptedIOException ignore) {
+        }
+        assertTrue(Thread.interrupted());
+        // the entries cut short are deleted
+        File[] files = destDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertEquals(bytes.length, file.length());
+            }
+        }
+    }
+
+    @Test
+    public void unzipEntry() throws Exception {
+        byte[] bytes = FileIOUtils.readFile2BytesByStream(PATH_ZIP + "test.txt");
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        assertTrue(ZipUtils.unzipEntry2Stream(zipFile, "zip/test.txt", os));
+        assertTrue(Arrays.equals(bytes, os.toByteArray()));
+        assertFalse(ZipUtils.unzipEntry2Stream(zipFile, "zip/none.txt", os));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 1);
+        assertEquals(bytes.length, ZipUtils.unzipEntry2ByteBuffer(zipFile, "zip/test.txt", buffer));
+        assertEquals(bytes.length, buffer.position());
+        assertEquals(-1, ZipUtils.unzipEntry2ByteBuffer(zipFile, "zip/none.txt", buffer));
+    }
+
+    @Test
+    public void openZipReader() throws Exception {
+        ZipUtils.ZipReader reader = ZipUtils.openZipReader(zipFile);
+        try {
+            assertEquals(ZipUtils.getFilesPath(zipFile).size(), reader.size());
+            ZipEntry entry = reader.getEntry("zip/test.txt");
+            assertEquals("测试zip", entry.getComment());
+            byte[] bytes = FileIOUtils.readFile2BytesByStream(PATH_ZIP + "test.txt");
+            assertTrue(Arrays.equals(bytes, reader.readEntry2Bytes("zip/test.txt")));
+            assertNull(reader.getEntry("zip/none.txt"));
+            assertNull(reader.getInputStream("zip/none.txt"));
+        } finally {
+            reader.close();
+        }
+        assertTrue(reader == ZipUtils.openZipReader(zipFile));
+        reader.close();
+
+        List<String> files = new ArrayList<>();
+        files.add(PATH_ZIP + "test.txt");
+        assertTrue(ZipUtils.zipFilesParallel(files, zipFiles, null, 0, null));
+        reader = ZipUtils.openZipReader(zipFiles);
+        try {
+            ByteBuffer buffer = reader.getMappedEntry("test.txt");
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertTrue(Arrays.equals(FileIOUtils.readFile2BytesByStream(PATH_ZIP + "test.txt"), bytes));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void openZipReaderAfterInterrupt() throws Exception {
+        ZipUtils.ZipReader reader = ZipUtils.openZipReader(zipFile);
+        // the interrupt closes the channel of reader
+        Thread.currentThread().interrupt();
+        try {
+            reader.readEntry2Bytes("zip/test.txt");
+        } catch (IOException ignore) {
+        } finally {
+            Thread.interrupted();
+            reader.close();
+        }
+        ZipUtils.ZipReader newReader = ZipUtils.openZipReader(zipFile);
+        try {
+            assertTrue(reader != newReader);
+            byte[] bytes = FileIOUtils.readFile2BytesByStream(PATH_ZIP + "test.txt");
+            assertTrue(Arrays.equals(bytes, newReader.readEntry2Bytes("zip/test.txt")));
+        } finally {
+            newReader.close();
+        }
+    }
+
+    @Test
+    public void openZipReaderRewritten() throws Exception {
+        final File file = new File(PATH_TEMP + "rewritten.zip");
+        final byte[] xBytes = new byte[100];
+        Arrays.fill(xBytes, (byte) 'x');
+        // the same length and central directory's location with the entries in other order
+        writeZip(file, null, "x.txt", "y.txt");
+        assertTrue(file.setLastModified(1000000000000L));
+        ZipUtils.ZipReader reader = ZipUtils.openZipReader(file);
+        try {
+            assertTrue(Arrays.equals(xBytes, reader.readEntry2Bytes("x.txt")));
+        } finally {
+            reader.close();
+        }
+        final long length = file.length();
+        writeZip(file, null, "y.txt", "x.txt");
+        assertTrue(file.setLastModified(1000000000000L));
+        assertEquals(length, file.length());
+        reader = ZipUtils.openZipReader(file);
+        try {
+            reader.readEntry2Bytes("x.txt");
+            fail();
+        } catch (ZipException ignore) {
+        } finally {
+            reader.close();
+        }
+        // the changed end of central directory opens the file again
+        writeZip(file, "a", "x.txt", "y.txt");
+        final long time = file.lastModified();
+        ZipUtils.ZipReader oldReader = ZipUtils.openZipReader(file);
+        oldReader.close();
+        writeZip(file, "b", "y.txt", "x.txt");
+        assertTrue(file.setLastModified(time));
+        reader = ZipUtils.openZipReader(file);
+        try {
+            assertTrue(reader != oldReader);
+            assertTrue(Arrays.equals(xBytes, reader.readEntry2Bytes("x.txt")));
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeZip(final File file, final String comment, final String... names)
+            throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zos.setComment(comment);
+            for (String name : names) {
+                final byte[] bytes = new byte[100];
+                Arrays.fill(bytes, (byte) name.charAt(0));
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(bytes);
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+    }
+
+    @Test
+    public void openZipReaderCorrupt() throws Exception {
+        // the ZIP64 end claims too many entries for its central directory
+        ByteBuffer buffer = ByteBuffer.allocate(98).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, 0x06064b50);
+        buffer.putLong(32, Integer.MAX_VALUE);
+        buffer.putLong(40, 56);
+        buffer.putLong(48, 0);
+        buffer.putInt(56, 0x07064b50);
+        buffer.putLong(64, 0);
+        buffer.putInt(76, 0x06054b50);
+        buffer.putShort(86, (short) 0xFFFF);
+        buffer.putInt(88, 0xFFFFFFFF);
+        buffer.putInt(92, 0xFFFFFFFF);
+        String corruptFile = PATH_TEMP + "corrupt.zip";
+        assertTrue(FileIOUtils.writeFileFromBytesByStream(corruptFile, buffer.array()));
+        try {
+            ZipUtils.openZipReader(corruptFile).close();
+            fail();
+        } catch (ZipException ignore) {
+        }
+    }
+
     @Test
     public void getFilesPath() throws Exception {
         System.out.println(ZipUtils.getFilesPath(zipFile));
@@ -61,6 +297,7 @@ public class ZipUtilsTest extends BaseTest {
 
     @After
     public void tearDown() {
+        ZipUtils.clearZipReaderCache();
         FileUtils.deleteAllInDir(PATH_TEMP);
     }
 }
\ No newline at end of file